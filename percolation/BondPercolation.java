@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  BondPercolation.java
+ * Execution:    java-algs4  BondPercolation
+ * Dependencies: algs4.jar
+ * <p>
+ * Bond percolation on an n-by-n square grid: every site is present, and the
+ * 2n(n-1) bonds between neighbouring sites open one by one. Bonds are
+ * numbered horizontal first, bond r*(n-1)+c joining (r, c)-(r, c+1), then
+ * vertical, bond n(n-1)+r*n+c joining (r, c)-(r+1, c), all 0-based, and
+ * their state is a packed bitset. Connectivity reuses SiteUnionFind: a site
+ * enters it when its first bond opens. Sites without any open bond are
+ * isolated, so only the 1-by-1 grid can percolate without them, and it has
+ * no bonds at all. Cluster statistics count them as clusters of one site.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.Arrays;
+
+public class BondPercolation {
+    private final SiteUnionFind sites;
+    private final long[] openBits;
+    private final int n;
+    private final int horizontal;
+    private final int bonds;
+    private int count = 0;
+
+    /**
+     * Creates n-by-n grid, with all bonds initially closed
+     *
+     * @throws IllegalArgumentException if n <= 0
+     */
+    public BondPercolation(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid n!");
+        }
+        this.n = n;
+        horizontal = n * (n - 1);
+        bonds = 2 * horizontal;
+        sites = new SiteUnionFind(n * n, false);
+        openBits = new long[(bonds + 63) >>> 6];
+    }
+
+    /**
+     * Number of bonds of the grid
+     *
+     * @return 2n(n-1)
+     */
+    public int bonds() {
+        return bonds;
+    }
+
+    /**
+     * Open the bond if it is not open already
+     *
+     * @throws IllegalArgumentException if bond is out of index
+     */
+    public void open(int bond) {
+        if (isOpen(bond)) {
+            return;
+        }
+        openBits[bond >>> 6] |= 1L << bond;
+        count++;
+        int p;
+        int q;
+        if (bond < horizontal) {
+            int row = bond / (n - 1);
+            p = row * n + bond % (n - 1);
+            q = p + 1;
+        } else {
+            p = bond - horizontal;
+            q = p + n;
+        }
+        enter(p);
+        enter(q);
+        sites.union(p, q);
+        sites.settle(p);
+    }
+
+    /**
+     * Check if bond is open
+     *
+     * @return True if bond is open
+     * @throws IllegalArgumentException if bond is out of index
+     */
+    public boolean isOpen(int bond) {
+        if (bond < 0 || bond >= bonds) {
+            throw new IllegalArgumentException("Invalid bond!");
+        }
+        return (openBits[bond >>> 6] & (1L << bond)) != 0;
+    }
+
+    /**
+     * Check if site (row, col) is full (connected to Top through open bonds)
+     *
+     * @return True if site is full
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public boolean isFull(int row, int col) {
+        if (row <= 0 || row > n || col <= 0 || col > n) {
+            throw new IllegalArgumentException("Invalid row or col!");
+        }
+        int site = (row - 1) * n + col - 1;
+        return sites.isOpen(site) ? sites.isFull(site) : row == 1;
+    }
+
+    /**
+     * Number of the open bonds
+     *
+     * @return the number of open bonds
+     */
+    public int numberOfOpenBonds() {
+        return count;
+    }
+
+    /**
+     * Number of clusters of sites joined by open bonds
+     *
+     * @return number of clusters, isolated sites included
+     */
+    public int numberOfClusters() {
+        return sites.clusters() + n * n - sites.count();
+    }
+
+    /**
+     * Number of sites in the largest cluster
+     *
+     * @return size of the largest cluster, at least 1
+     */
+    public int largestCluster() {
+        return Math.max(1, sites.largestCluster());
+    }
+
+    /**
+     * Add one to sizeCounts[s] for every current cluster of s sites
+     */
+    void addClusterSizes(long[] sizeCounts) {
+        sites.addClusterSizes(sizeCounts);
+        sizeCounts[1] += n * n - sites.count();
+    }
+
+    /**
+     * Check if system percolates (Bottom connect to Top)
+     *
+     * @return True if system percolates
+     */
+    public boolean percolates() {
+        return n == 1 || sites.percolates();
+    }
+
+    /**
+     * Close every bond again
+     */
+    public void reset() {
+        sites.reset();
+        Arrays.fill(openBits, 0L);
+        count = 0;
+    }
+
+    /**
+     * Add site to the union-find the first time one of its bonds opens
+     */
+    private void enter(int site) {
+        if (sites.isOpen(site)) {
+            return;
+        }
+        byte flags = 0;
+        if (site < n) flags |= SiteUnionFind.TOP;
+        if (site >= n * n - n) flags |= SiteUnionFind.BOTTOM;
+        sites.open(site, flags);
+    }
+
+    /**
+     * Add the operation counters to metrics and start counting from zero
+     */
+    void flushMetrics(PercolationMetrics metrics) {
+        sites.flushMetrics(metrics);
+    }
+
+    /**
+     * Simple test client <p>
+     * Check a hand-made path and print the threshold estimate (exactly 1/2
+     * in the limit).
+     */
+    public static void main(String[] args) {
+        BondPercolation percolation = new BondPercolation(3);
+        assert percolation.bonds() == 12 : "3x3 grid has 12 bonds";
+        percolation.open(6);
+        percolation.open(0);
+        assert !percolation.percolates() : "bonds 6 and 0 do not reach the bottom";
+        assert percolation.isFull(2, 1) && !percolation.isFull(2, 2)
+                : "only (2, 1) is full below row 1";
+        percolation.open(9);
+        assert percolation.percolates() : "bonds 6 and 9 join (1, 1)-(2, 1)-(3, 1)";
+        assert percolation.numberOfClusters() == 6 && percolation.largestCluster() == 4
+                : "one cluster of 4 sites plus 5 isolated sites";
+        percolation.reset();
+        assert percolation.numberOfOpenBonds() == 0 && !percolation.isOpen(6)
+                : "reset() should close all bonds";
+        assert !percolation.percolates() && !percolation.isFull(2, 1)
+                : "reset() should clear the clusters";
+        percolation.open(7);
+        percolation.open(2);
+        percolation.open(9);
+        assert percolation.percolates() : "(1, 2)-(2, 2)-(2, 1)-(3, 1)";
+
+        int n = 200;
+        int trials = 20;
+        double sum = 0;
+        percolation = new BondPercolation(n);
+        for (int trial = 0; trial < trials; trial++) {
+            while (!percolation.percolates()) {
+                percolation.open(StdRandom.uniformInt(percolation.bonds()));
+            }
+            sum += (double) percolation.numberOfOpenBonds() / percolation.bonds();
+            percolation.reset();
+        }
+        StdOut.println("bond threshold ~ " + sum / trials);
+    }
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  DirectedPercolation.java
+ * Execution:    java-algs4  DirectedPercolation
+ * Dependencies: algs4.jar
+ * <p>
+ * Directed (top-down) site percolation on an n-by-n grid: the fluid enters
+ * through the open top-row sites and moves down, left or right, but never
+ * up. Reachability is not symmetric, so there is no union-find here.
+ * Instead the set of full sites only ever grows: when an opened site has a
+ * full neighbour above, left or right (or lies in the top row) it becomes
+ * full, and the fill spreads down/left/right from it. Every site is filled
+ * at most once, so a whole trial costs O(n^2).
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.Arrays;
+
+public class DirectedPercolation {
+    private static final byte OPEN = 1;
+    private static final byte FULL = 2;
+    private static final int INITIAL_JOURNAL = 16;
+
+    private final byte[] state;
+    private final int[] stack;
+    private int[] opened = new int[INITIAL_JOURNAL];
+    private final int n;
+    private int count = 0;
+    private boolean percolates = false;
+
+    /**
+     * Creates n-by-n grid, with all sites initially blocked
+     *
+     * @throws IllegalArgumentException if n <= 0
+     */
+    public DirectedPercolation(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid n!");
+        }
+        this.n = n;
+        state = new byte[n * n];
+        stack = new int[n * n];
+    }
+
+    /**
+     * Open the site (row, col) if it is not open already
+     *
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public void open(int row, int col) {
+        if (isOpen(row, col)) {
+            return;
+        }
+        int index = (row - 1) * n + col - 1;
+        state[index] = OPEN;
+        if (count == opened.length) {
+            opened = Arrays.copyOf(opened, Math.min(2 * count, n * n));
+        }
+        opened[count++] = index;
+        if (row == 1
+                || state[index - n] == (OPEN | FULL)
+                || col != 1 && state[index - 1] == (OPEN | FULL)
+                || col != n && state[index + 1] == (OPEN | FULL)) {
+            fill(index);
+        }
+    }
+
+    /**
+     * Check if site (row, col) is open
+     *
+     * @return True if site is open
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public boolean isOpen(int row, int col) {
+        if (row <= 0 || row > n || col <= 0 || col > n) {
+            throw new IllegalArgumentException("Invalid row or col!");
+        }
+        return state[(row - 1) * n + col - 1] != 0;
+    }
+
+    /**
+     * Check if site (row, col) is full (reachable from Top moving down/left/right)
+     *
+     * @return True if site is full
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public boolean isFull(int row, int col) {
+        return isOpen(row, col) && state[(row - 1) * n + col - 1] == (OPEN | FULL);
+    }
+
+    /**
+     * Number of the open sites
+     *
+     * @return the number of open sites
+     */
+    public int numberOfOpenSites() {
+        return count;
+    }
+
+    /**
+     * Check if system percolates (some bottom site is full)
+     *
+     * @return True if system percolates
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * Block every site again, touching only the sites opened since the last reset
+     */
+    public void reset() {
+        for (int i = 0; i < count; i++) {
+            state[opened[i]] = 0;
+        }
+        count = 0;
+        percolates = false;
+    }
+
+    /**
+     * Mark site full and spread down/left/right through open, not yet full sites
+     */
+    private void fill(int site) {
+        state[site] = OPEN | FULL;
+        int top = 0;
+        stack[top++] = site;
+        int bottom = n * n - n;
+        while (top > 0) {
+            int current = stack[--top];
+            int col = current % n;
+            if (current >= bottom) {
+                percolates = true;
+            } else if (state[current + n] == OPEN) {
+                state[current + n] = OPEN | FULL;
+                stack[top++] = current + n;
+            }
+            if (col != 0 && state[current - 1] == OPEN) {
+                state[current - 1] = OPEN | FULL;
+                stack[top++] = current - 1;
+            }
+            if (col != n - 1 && state[current + 1] == OPEN) {
+                state[current + 1] = OPEN | FULL;
+                stack[top++] = current + 1;
+            }
+        }
+    }
+
+    /**
+     * Simple test client <p>
+     * A U-shaped path percolates undirected but not directed.
+     */
+    public static void main(String[] args) {
+        DirectedPercolation percolation = new DirectedPercolation(3);
+        percolation.open(1, 1);
+        percolation.open(2, 1);
+        percolation.open(2, 2);
+        percolation.open(3, 3);
+        assert !percolation.percolates() : "System should not percolate.";
+        percolation.open(2, 3);
+        assert percolation.isFull(2, 3) && percolation.percolates() : "right then down reaches bottom";
+
+        percolation = new DirectedPercolation(3);
+        percolation.open(1, 3);
+        percolation.open(2, 3);
+        percolation.open(3, 3);
+        percolation.open(3, 2);
+        percolation.open(3, 1);
+        percolation.open(2, 1);
+        assert percolation.percolates() : "column 3 reaches bottom";
+        assert !percolation.isFull(2, 1) : "(2, 1) is only reachable by moving up";
+        percolation.reset();
+        assert percolation.numberOfOpenSites() == 0 && !percolation.isOpen(3, 3) : "reset() should block all sites";
+
+        int n = 200;
+        int trials = 20;
+        double sum = 0;
+        percolation = new DirectedPercolation(n);
+        for (int trial = 0; trial < trials; trial++) {
+            while (!percolation.percolates()) {
+                percolation.open(StdRandom.uniformInt(1, n + 1), StdRandom.uniformInt(1, n + 1));
+            }
+            sum += (double) percolation.numberOfOpenSites() / (n * n);
+            percolation.reset();
+        }
+        StdOut.println("directed threshold ~ " + sum / trials);
+    }
+}
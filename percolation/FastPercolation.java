@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  FastPercolation.java
+ * Execution:    java-algs4  FastPercolation
+ * Dependencies: algs4.jar
+ * <p>
+ * Same API as Percolation, backed by a single union-find over plain int[]
+ * parent/size arrays (SiteUnionFind). Instead of pre-connecting the top and
+ * bottom rows, every root carries a state byte telling whether its component
+ * touches the top row and/or the bottom row. The flags are merged on union,
+ * so isFull() checks the TOP bit of the site's root (no backwash), and
+ * percolates() is a flag set as soon as some root holds both TOP and BOTTOM.
+ * Opened sites are journaled so reset() can restore the blocked grid by
+ * touching only the sites opened since the last reset.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+public class FastPercolation {
+    private final SiteUnionFind sites;
+    private final int n;
+
+    /**
+     * Creates n-by-n grid, with all sites initially blocked
+     *
+     * @throws IllegalArgumentException if n <= 0
+     */
+    public FastPercolation(int n) {
+        this(n, false);
+    }
+
+    /**
+     * Creates n-by-n grid, with all sites initially blocked
+     *
+     * @param clusterHistogram True to keep the number of clusters of every size
+     * @throws IllegalArgumentException if n <= 0
+     */
+    public FastPercolation(int n, boolean clusterHistogram) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid n!");
+        }
+        this.n = n;
+        sites = new SiteUnionFind(n * n, clusterHistogram);
+    }
+
+    /**
+     * Open the site (row, col) if it is not open already
+     *
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public void open(int row, int col) {
+        if (isOpen(row, col)) {
+            return;
+        }
+        int index = unionIndex(row, col);
+        byte flags = 0;
+        if (row == 1) flags |= SiteUnionFind.TOP;
+        if (row == n) flags |= SiteUnionFind.BOTTOM;
+        sites.open(index, flags);
+        if (row != 1 && sites.isOpen(index - n)) sites.union(index, index - n);
+        if (row != n && sites.isOpen(index + n)) sites.union(index, index + n);
+        if (col != 1 && sites.isOpen(index - 1)) sites.union(index, index - 1);
+        if (col != n && sites.isOpen(index + 1)) sites.union(index, index + 1);
+        sites.settle(index);
+    }
+
+    /**
+     * Check if site (row, col) is open
+     *
+     * @return True if site is open
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public boolean isOpen(int row, int col) {
+        if (!isValidIndex(row) || !isValidIndex(col)) {
+            throw new IllegalArgumentException("Invalid row or col!");
+        }
+        return sites.isOpen(unionIndex(row, col));
+    }
+
+    /**
+     * Check if site (row, col) is full (connected to Top)
+     *
+     * @return True if site is full
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public boolean isFull(int row, int col) {
+        return isOpen(row, col) && sites.isFull(unionIndex(row, col));
+    }
+
+    /**
+     * Block every site again. Only the sites opened since the last reset are
+     * touched, and no memory is allocated.
+     */
+    public void reset() {
+        sites.reset();
+    }
+
+    /**
+     * Number of the open sites
+     *
+     * @return the number of open sites
+     */
+    public int numberOfOpenSites() {
+        return sites.count();
+    }
+
+    /**
+     * Number of open clusters (connected components of open sites)
+     *
+     * @return number of clusters
+     */
+    public int numberOfClusters() {
+        return sites.clusters();
+    }
+
+    /**
+     * Number of open clusters with exactly size sites
+     *
+     * @return number of clusters of that size
+     * @throws UnsupportedOperationException if created without clusterHistogram
+     * @throws IllegalArgumentException      if size is not in [1, n*n]
+     */
+    public int clustersOfSize(int size) {
+        return sites.clustersOfSize(size);
+    }
+
+    /**
+     * Add one to sizeCounts[s] for every current cluster of s sites
+     */
+    void addClusterSizes(long[] sizeCounts) {
+        sites.addClusterSizes(sizeCounts);
+    }
+
+    /**
+     * Number of sites in the largest open cluster
+     *
+     * @return size of the largest cluster, 0 if no site is open
+     */
+    public int largestCluster() {
+        return sites.largestCluster();
+    }
+
+    /**
+     * Check if system percolates (Bottom connect to Top)
+     *
+     * @return True if system percolates
+     */
+    public boolean percolates() {
+        return sites.percolates();
+    }
+
+    /**
+     * Check if a given index is out of range
+     *
+     * @return True if index is in (0, n]
+     */
+    private boolean isValidIndex(int index) {
+        return index > 0 && index <= n;
+    }
+
+    /**
+     * Convert the 2D index to 1D array index
+     *
+     * @return 1D array index
+     */
+    private int unionIndex(int row, int col) {
+        return (row - 1) * n + col - 1;
+    }
+
+    /**
+     * Add the operation counters to metrics and start counting from zero
+     */
+    void flushMetrics(PercolationMetrics metrics) {
+        sites.flushMetrics(metrics);
+    }
+
+    /**
+     * Simple test client <p>
+     * Verify the API against Percolation on random grids.
+     */
+    public static void main(String[] args) {
+        FastPercolation percolation = new FastPercolation(1);
+        assert !percolation.percolates() : "System should not percolate.";
+        percolation.open(1, 1);
+        assert percolation.percolates() : "System should percolate.";
+
+        percolation = new FastPercolation(3);
+        percolation.open(2, 1);
+        percolation.open(3, 1);
+        percolation.open(3, 3);
+        percolation.open(2, 3);
+        percolation.open(1, 3);
+        assert !percolation.isOpen(2, 2) : "site (2, 2) should not open.";
+        assert !percolation.isFull(2, 1) : "site (2, 1) should not full.";
+        assert percolation.isFull(3, 3) : "site (3, 3) should full.";
+        assert percolation.numberOfOpenSites() == 5 : "number of open sites = 5";
+        assert percolation.largestCluster() == 3 : "largest cluster = 3";
+        assert percolation.numberOfClusters() == 2 : "number of clusters = 2";
+        assert percolation.percolates() : "System should percolate.";
+        assert !percolation.isFull(3, 1) : "site (3, 1) should not full (backwash).";
+
+        for (int trial = 0; trial < 100; trial++) {
+            int n = StdRandom.uniformInt(1, 20);
+            FastPercolation fast = new FastPercolation(n, true);
+            Percolation reference = new Percolation(n);
+            while (!reference.percolates()) {
+                int row = StdRandom.uniformInt(1, n + 1);
+                int col = StdRandom.uniformInt(1, n + 1);
+                fast.open(row, col);
+                reference.open(row, col);
+                assert fast.percolates() == reference.percolates() : "percolates() mismatch";
+            }
+            for (int row = 1; row <= n; row++) {
+                for (int col = 1; col <= n; col++) {
+                    assert fast.isFull(row, col) == reference.isFull(row, col)
+                            : "isFull() mismatch";
+                }
+            }
+            assert fast.numberOfOpenSites() == reference.numberOfOpenSites();
+            int clusters = 0;
+            int clusterSites = 0;
+            for (int size = 1; size <= n * n; size++) {
+                clusters += fast.clustersOfSize(size);
+                clusterSites += size * fast.clustersOfSize(size);
+            }
+            assert clusters == fast.numberOfClusters() : "histogram should count every cluster";
+            assert clusterSites == fast.numberOfOpenSites()
+                    : "histogram should cover every open site";
+            fast.reset();
+            assert fast.numberOfOpenSites() == 0 && !fast.percolates()
+                    : "reset() should block all sites";
+            assert fast.largestCluster() == 0 && fast.numberOfClusters() == 0
+                    : "reset() should clear the clusters";
+            for (int size = 1; size <= n * n; size++) {
+                assert fast.clustersOfSize(size) == 0 : "reset() should clear the histogram";
+            }
+            for (int row = 1; row <= n; row++) {
+                for (int col = 1; col <= n; col++) {
+                    assert !fast.isOpen(row, col) : "reset() should block all sites";
+                }
+            }
+        }
+        StdOut.println("Percolation : " + percolation.percolates());
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  Lattice.java
+ * <p>
+ * Site lattices for LatticePercolation. Sites of an n-wide lattice are
+ * numbered row-major, layer by layer for 3D, and the neighbourhood of a site
+ * is a fixed table of (layer, row, col) offsets. The honeycomb is stored as
+ * a brick wall, so its table depends on the parity of row + col. The
+ * fluid enters through the first row (first layer in 3D) and percolates
+ * when it reaches the last one.
+ ******************************************************************************/
+
+public enum Lattice {
+    /** 2D square lattice, 4 neighbours */
+    SQUARE(2, false, new int[][] {{0, -1, 0}, {0, 1, 0}, {0, 0, -1}, {0, 0, 1}}),
+    /** 2D square lattice with diagonals, 8 neighbours */
+    SQUARE_8(2, false, new int[][] {
+            {0, -1, -1}, {0, -1, 0}, {0, -1, 1}, {0, 0, -1},
+            {0, 0, 1}, {0, 1, -1}, {0, 1, 0}, {0, 1, 1}}),
+    /** 2D triangular lattice, 6 neighbours (square plus one diagonal) */
+    TRIANGULAR(2, false, new int[][] {
+            {0, -1, 0}, {0, 1, 0}, {0, 0, -1}, {0, 0, 1}, {0, -1, 1}, {0, 1, -1}}),
+    /** 2D honeycomb lattice as a brick wall, 3 neighbours */
+    HONEYCOMB(2, true, new int[][] {{0, 0, -1}, {0, 0, 1}, {0, 1, 0}},
+                       new int[][] {{0, 0, -1}, {0, 0, 1}, {0, -1, 0}}),
+    /** 3D simple cubic lattice, 6 neighbours */
+    CUBIC(3, false, new int[][] {
+            {-1, 0, 0}, {1, 0, 0}, {0, -1, 0}, {0, 1, 0}, {0, 0, -1}, {0, 0, 1}});
+
+    private final int dimensions;
+    private final boolean parity;
+    private final int[][][] offsets;
+    private final int maxDegree;
+
+    Lattice(int dimensions, boolean parity, int[][]... offsets) {
+        this.dimensions = dimensions;
+        this.parity = parity;
+        this.offsets = offsets.length == 2 ? offsets : new int[][][] {offsets[0], offsets[0]};
+        maxDegree = Math.max(this.offsets[0].length, this.offsets[1].length);
+    }
+
+    /**
+     * Number of sites of an n-wide lattice
+     *
+     * @return n^dimensions
+     * @throws IllegalArgumentException if n <= 0 or the count overflows an int
+     */
+    public int sites(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid n!");
+        }
+        long sites = 1;
+        for (int i = 0; i < dimensions; i++) {
+            sites *= n;
+        }
+        if (sites > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("n too large!");
+        }
+        return (int) sites;
+    }
+
+    /**
+     * Number of sites in the first (top) or last (bottom) row or layer
+     *
+     * @return n^(dimensions - 1)
+     */
+    public int face(int n) {
+        return dimensions == 3 ? n * n : n;
+    }
+
+    /**
+     * Largest number of neighbours of a site
+     *
+     * @return size of the neighbour table
+     */
+    public int maxDegree() {
+        return maxDegree;
+    }
+
+    /**
+     * Write the neighbours of site inside an n-wide lattice into out
+     *
+     * @param out array of at least maxDegree() entries
+     * @return number of neighbours written
+     */
+    public int neighbors(int site, int n, int[] out) {
+        int layer = 0;
+        int rest = site;
+        if (dimensions == 3) {
+            layer = site / (n * n);
+            rest = site - layer * n * n;
+        }
+        int row = rest / n;
+        int col = rest - row * n;
+        int[][] table = offsets[parity ? (row + col) & 1 : 0];
+        int count = 0;
+        for (int[] offset : table) {
+            int l = layer + offset[0];
+            int r = row + offset[1];
+            int c = col + offset[2];
+            if (l >= 0 && r >= 0 && c >= 0 && r < n && c < n && (dimensions == 3 ? l < n : l == 0)) {
+                out[count++] = site + (offset[0] * n + offset[1]) * n + offset[2];
+            }
+        }
+        return count;
+    }
+}
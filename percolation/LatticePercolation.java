@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  LatticePercolation.java
+ * Execution:    java-algs4  LatticePercolation
+ * Dependencies: algs4.jar
+ * <p>
+ * Site percolation on any Lattice, on top of the same SiteUnionFind core as
+ * FastPercolation. Sites are addressed by their 0-based index in the
+ * lattice numbering; open() asks the lattice's neighbour table for the
+ * neighbours instead of hardcoding the four square ones.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+public class LatticePercolation {
+    private final Lattice lattice;
+    private final SiteUnionFind sites;
+    private final int n;
+    private final int total;
+    private final int face;
+    private final int[] neighbors;
+
+    /**
+     * Creates an n-wide lattice, with all sites initially blocked
+     *
+     * @throws IllegalArgumentException if lattice is null, n <= 0 or the lattice is too large
+     */
+    public LatticePercolation(Lattice lattice, int n) {
+        this(lattice, n, false);
+    }
+
+    /**
+     * Creates an n-wide lattice, with all sites initially blocked
+     *
+     * @param clusterHistogram True to keep the number of clusters of every size
+     * @throws IllegalArgumentException if lattice is null, n <= 0 or the lattice is too large
+     */
+    public LatticePercolation(Lattice lattice, int n, boolean clusterHistogram) {
+        if (lattice == null) {
+            throw new IllegalArgumentException("Null lattice!");
+        }
+        this.lattice = lattice;
+        this.n = n;
+        total = lattice.sites(n);
+        face = lattice.face(n);
+        sites = new SiteUnionFind(total, clusterHistogram);
+        neighbors = new int[lattice.maxDegree()];
+    }
+
+    /**
+     * Open the site if it is not open already
+     *
+     * @throws IllegalArgumentException if site is out of index
+     */
+    public void open(int site) {
+        if (isOpen(site)) {
+            return;
+        }
+        byte flags = 0;
+        if (site < face) flags |= SiteUnionFind.TOP;
+        if (site >= total - face) flags |= SiteUnionFind.BOTTOM;
+        sites.open(site, flags);
+        int degree = lattice.neighbors(site, n, neighbors);
+        for (int i = 0; i < degree; i++) {
+            if (sites.isOpen(neighbors[i])) {
+                sites.union(site, neighbors[i]);
+            }
+        }
+        sites.settle(site);
+    }
+
+    /**
+     * Check if site is open
+     *
+     * @return True if site is open
+     * @throws IllegalArgumentException if site is out of index
+     */
+    public boolean isOpen(int site) {
+        if (site < 0 || site >= total) {
+            throw new IllegalArgumentException("Invalid site!");
+        }
+        return sites.isOpen(site);
+    }
+
+    /**
+     * Check if site is full (connected to Top)
+     *
+     * @return True if site is full
+     * @throws IllegalArgumentException if site is out of index
+     */
+    public boolean isFull(int site) {
+        return isOpen(site) && sites.isFull(site);
+    }
+
+    /**
+     * Block every site again, touching only the sites opened since the last reset
+     */
+    public void reset() {
+        sites.reset();
+    }
+
+    /**
+     * Number of sites of the lattice
+     *
+     * @return n^dimensions
+     */
+    public int sites() {
+        return total;
+    }
+
+    /**
+     * Number of the open sites
+     *
+     * @return the number of open sites
+     */
+    public int numberOfOpenSites() {
+        return sites.count();
+    }
+
+    /**
+     * Number of open clusters (connected components of open sites)
+     *
+     * @return number of clusters
+     */
+    public int numberOfClusters() {
+        return sites.clusters();
+    }
+
+    /**
+     * Number of open clusters with exactly size sites
+     *
+     * @return number of clusters of that size
+     * @throws UnsupportedOperationException if created without clusterHistogram
+     * @throws IllegalArgumentException      if size is not in [1, sites()]
+     */
+    public int clustersOfSize(int size) {
+        return sites.clustersOfSize(size);
+    }
+
+    /**
+     * Add one to sizeCounts[s] for every current cluster of s sites
+     */
+    void addClusterSizes(long[] sizeCounts) {
+        sites.addClusterSizes(sizeCounts);
+    }
+
+    /**
+     * Number of sites in the largest open cluster
+     *
+     * @return size of the largest cluster, 0 if no site is open
+     */
+    public int largestCluster() {
+        return sites.largestCluster();
+    }
+
+    /**
+     * Check if system percolates (Bottom connect to Top)
+     *
+     * @return True if system percolates
+     */
+    public boolean percolates() {
+        return sites.percolates();
+    }
+
+    /**
+     * Add the operation counters to metrics and start counting from zero
+     */
+    void flushMetrics(PercolationMetrics metrics) {
+        sites.flushMetrics(metrics);
+    }
+
+    /**
+     * Simple test client <p>
+     * SQUARE must agree with FastPercolation, the other lattices print their
+     * threshold estimate from a few random fillings.
+     */
+    public static void main(String[] args) {
+        for (int trial = 0; trial < 100; trial++) {
+            int n = StdRandom.uniformInt(1, 20);
+            LatticePercolation lattice = new LatticePercolation(Lattice.SQUARE, n);
+            FastPercolation reference = new FastPercolation(n);
+            while (!reference.percolates()) {
+                int site = StdRandom.uniformInt(n * n);
+                lattice.open(site);
+                reference.open(site / n + 1, site % n + 1);
+                assert lattice.percolates() == reference.percolates() : "percolates() mismatch";
+            }
+            for (int site = 0; site < n * n; site++) {
+                assert lattice.isFull(site) == reference.isFull(site / n + 1, site % n + 1)
+                        : "isFull() mismatch";
+            }
+        }
+
+        LatticePercolation honeycomb = new LatticePercolation(Lattice.HONEYCOMB, 2);
+        honeycomb.open(0);
+        honeycomb.open(2);
+        assert honeycomb.percolates() : "(0,0) and (1,0) are bonded in the brick wall";
+        honeycomb = new LatticePercolation(Lattice.HONEYCOMB, 2);
+        honeycomb.open(1);
+        honeycomb.open(3);
+        assert !honeycomb.percolates() : "(0,1) and (1,1) are not bonded in the brick wall";
+
+        for (Lattice type : Lattice.values()) {
+            int n = type == Lattice.CUBIC ? 40 : 200;
+            LatticePercolation percolation = new LatticePercolation(type, n);
+            double sum = 0;
+            int trials = 20;
+            for (int trial = 0; trial < trials; trial++) {
+                while (!percolation.percolates()) {
+                    percolation.open(StdRandom.uniformInt(percolation.sites()));
+                }
+                sum += (double) percolation.numberOfOpenSites() / percolation.sites();
+                percolation.reset();
+            }
+            StdOut.println(type + " threshold ~ " + sum / trials);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  LongPercolation.java
+ * Execution:    java-algs4  LongPercolation
+ * Dependencies: algs4.jar
+ * <p>
+ * Percolation for grids whose n*n does not fit in an int (n > 46340).
+ * Sites are addressed with long indices. Open sites live in a packed bitset
+ * (one bit per site in long[] words), and the union-find keeps its long
+ * parent links in fixed-size pages that are only allocated once a site in
+ * them is opened. A parent entry of 0 means "root", otherwise it stores
+ * parent + 1, so fresh pages need no initialization pass. Each site also has
+ * one meta byte: the TOP/BOTTOM flags used by FastPercolation in the low
+ * bits and the union-by-rank rank in the high bits.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+public class LongPercolation {
+    private static final int PAGE_SHIFT = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+    private static final byte TOP = 1;
+    private static final byte BOTTOM = 2;
+    private static final int FLAGS = TOP | BOTTOM;
+    private static final int RANK_SHIFT = 2;
+
+    private final long[] openBits;
+    private final long[][] parent;
+    private final byte[][] meta;
+    private final int n;
+    private long count = 0;
+    private boolean percolates = false;
+
+    /**
+     * Creates n-by-n grid, with all sites initially blocked
+     *
+     * @throws IllegalArgumentException if n <= 0 or the bitset would exceed a long[]
+     */
+    public LongPercolation(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid n!");
+        }
+        long sites = (long) n * n;
+        long words = (sites + 63) >>> 6;
+        if (words > MAX_WORDS) {
+            throw new IllegalArgumentException("n too large!");
+        }
+        this.n = n;
+        openBits = new long[(int) words];
+        int pages = (int) ((sites + PAGE_SIZE - 1) >>> PAGE_SHIFT);
+        parent = new long[pages][];
+        meta = new byte[pages][];
+    }
+
+    /**
+     * Open the site (row, col) if it is not open already
+     *
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public void open(int row, int col) {
+        if (isOpen(row, col)) {
+            return;
+        }
+        long index = unionIndex(row, col);
+        openBits[(int) (index >>> 6)] |= 1L << index;
+        count++;
+        page(index);
+        byte flags = 0;
+        if (row == 1) flags |= TOP;
+        if (row == n) flags |= BOTTOM;
+        meta[(int) (index >>> PAGE_SHIFT)][(int) (index & PAGE_MASK)] |= flags;
+        if (row != 1 && isOpenIndex(index - n)) union(index, index - n);
+        if (row != n && isOpenIndex(index + n)) union(index, index + n);
+        if (col != 1 && isOpenIndex(index - 1)) union(index, index - 1);
+        if (col != n && isOpenIndex(index + 1)) union(index, index + 1);
+        if ((metaOf(find(index)) & FLAGS) == FLAGS) {
+            percolates = true;
+        }
+    }
+
+    /**
+     * Check if site (row, col) is open
+     *
+     * @return True if site is open
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public boolean isOpen(int row, int col) {
+        if (!isValidIndex(row) || !isValidIndex(col)) {
+            throw new IllegalArgumentException("Invalid row or col!");
+        }
+        return isOpenIndex(unionIndex(row, col));
+    }
+
+    /**
+     * Check if site (row, col) is full (connected to Top)
+     *
+     * @return True if site is full
+     * @throws IllegalArgumentException if row or col is out of index
+     */
+    public boolean isFull(int row, int col) {
+        return isOpen(row, col) && (metaOf(find(unionIndex(row, col))) & TOP) != 0;
+    }
+
+    /**
+     * Number of the open sites
+     *
+     * @return the number of open sites
+     */
+    public long numberOfOpenSites() {
+        return count;
+    }
+
+    /**
+     * Check if system percolates (Bottom connect to Top)
+     *
+     * @return True if system percolates
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * Check the open bit of a 1D index
+     *
+     * @return True if site is open
+     */
+    private boolean isOpenIndex(long index) {
+        return (openBits[(int) (index >>> 6)] & (1L << index)) != 0;
+    }
+
+    /**
+     * Allocate the parent/meta pages holding index if they do not exist yet
+     */
+    private void page(long index) {
+        int p = (int) (index >>> PAGE_SHIFT);
+        if (parent[p] == null) {
+            parent[p] = new long[PAGE_SIZE];
+            meta[p] = new byte[PAGE_SIZE];
+        }
+    }
+
+    private long parentOf(long p) {
+        long stored = parent[(int) (p >>> PAGE_SHIFT)][(int) (p & PAGE_MASK)];
+        return stored == 0 ? p : stored - 1;
+    }
+
+    private void setParent(long p, long root) {
+        parent[(int) (p >>> PAGE_SHIFT)][(int) (p & PAGE_MASK)] = root + 1;
+    }
+
+    /**
+     * Flags and rank of site p, unsigned: ranks of 32 and up set the sign bit
+     */
+    private int metaOf(long p) {
+        return meta[(int) (p >>> PAGE_SHIFT)][(int) (p & PAGE_MASK)] & 0xFF;
+    }
+
+    /**
+     * Root of open site p, halving the path on the way up
+     *
+     * @return root index
+     */
+    private long find(long p) {
+        long next = parentOf(p);
+        while (next != p) {
+            long grand = parentOf(next);
+            setParent(p, grand);
+            p = grand;
+            next = parentOf(p);
+        }
+        return p;
+    }
+
+    /**
+     * Union by rank of the components of p and q, the surviving root
+     * inherits the TOP/BOTTOM flags of both
+     */
+    private void union(long p, long q) {
+        long rootP = find(p);
+        long rootQ = find(q);
+        if (rootP == rootQ) {
+            return;
+        }
+        int metaP = metaOf(rootP);
+        int metaQ = metaOf(rootQ);
+        int rankP = metaP >>> RANK_SHIFT;
+        int rankQ = metaQ >>> RANK_SHIFT;
+        if (rankP < rankQ) {
+            long tmp = rootP;
+            rootP = rootQ;
+            rootQ = tmp;
+        }
+        int merged = (metaP | metaQ) & FLAGS;
+        int rank = Math.max(rankP, rankQ) + (rankP == rankQ ? 1 : 0);
+        setParent(rootQ, rootP);
+        meta[(int) (rootP >>> PAGE_SHIFT)][(int) (rootP & PAGE_MASK)] =
+                (byte) (merged | rank << RANK_SHIFT);
+    }
+
+    /**
+     * Check if a given index is out of range
+     *
+     * @return True if index is in (0, n]
+     */
+    private boolean isValidIndex(int index) {
+        return index > 0 && index <= n;
+    }
+
+    /**
+     * Convert the 2D index to 1D long index
+     *
+     * @return 1D index
+     */
+    private long unionIndex(int row, int col) {
+        return (long) (row - 1) * n + col - 1;
+    }
+
+    /**
+     * Simple test client <p>
+     * Verify the API against FastPercolation on random grids.
+     */
+    public static void main(String[] args) {
+        LongPercolation percolation = new LongPercolation(1);
+        assert !percolation.percolates() : "System should not percolate.";
+        percolation.open(1, 1);
+        assert percolation.percolates() : "System should percolate.";
+
+        for (int trial = 0; trial < 100; trial++) {
+            int n = StdRandom.uniformInt(1, 40);
+            LongPercolation big = new LongPercolation(n);
+            FastPercolation reference = new FastPercolation(n);
+            while (!reference.percolates()) {
+                int row = StdRandom.uniformInt(1, n + 1);
+                int col = StdRandom.uniformInt(1, n + 1);
+                big.open(row, col);
+                reference.open(row, col);
+                assert big.percolates() == reference.percolates() : "percolates() mismatch";
+            }
+            for (int row = 1; row <= n; row++) {
+                for (int col = 1; col <= n; col++) {
+                    assert big.isOpen(row, col) == reference.isOpen(row, col) : "isOpen() mismatch";
+                    assert big.isFull(row, col) == reference.isFull(row, col) : "isFull() mismatch";
+                }
+            }
+            assert big.numberOfOpenSites() == reference.numberOfOpenSites();
+        }
+
+        int n = 50000;
+        percolation = new LongPercolation(n);
+        percolation.open(n, n);
+        percolation.open(n, n - 1);
+        assert percolation.isOpen(n, n) && !percolation.isFull(n, n);
+        StdOut.println("Open sites on " + n + "x" + n + " grid: " + percolation.numberOfOpenSites());
+    }
+}
@@ -9,6 +9,12 @@
  * Use WeightedQuickUnion as data structure to simulate system.
  * Connect all top and all bottom sites in the initialization.
  * To solve the backwash issue, have another union which only has all top union
+ * <p>
+ * With virtualSites the rows are not pre-connected: two extra sentinel nodes
+ * stand for the top and the bottom, and a boundary-row site is unioned with
+ * its sentinel when it is opened. Construction then needs no union at all.
+ * With PercolationMetrics.ENABLED every union/find call on the two
+ * WeightedQuickUnionUF is counted, the construction ones included.
  ******************************************************************************/
 
 import edu.princeton.cs.algs4.StdOut;
@@ -21,7 +27,13 @@ public class Percolation {
     private WeightedQuickUnionUF union2;
     private boolean[] openArray;
     private final int size;
+    private final int top;
+    private final int bottom;
+    private final boolean virtualSites;
     private int count = 0;
+    private long opens = 0;
+    private long unions = 0;
+    private long finds = 0;
 
     /**
      * Creates n-by-n grid, with all sites initially blocked
@@ -29,22 +41,40 @@ public class Percolation {
      * @throws IllegalArgumentException if n <= 0
      */
     public Percolation(int n) {
+        this(n, false);
+    }
+
+    /**
+     * Creates n-by-n grid, with all sites initially blocked
+     *
+     * @param virtualSites True to use top/bottom sentinel nodes that are wired
+     *                     up lazily instead of pre-connecting the whole rows
+     * @throws IllegalArgumentException if n <= 0
+     */
+    public Percolation(int n, boolean virtualSites) {
         if (n <= 0) {
             throw new IllegalArgumentException("Invalid n!");
         }
         openArray = new boolean[n * n];
-        for (int i = 0; i < n * n; i++) {
-            openArray[i] = false;
-        }
         size = n;
+        this.virtualSites = virtualSites;
+        if (virtualSites) {
+            top = n * n;
+            bottom = n * n + 1;
+            union = new WeightedQuickUnionUF(n * n + 2);
+            union2 = new WeightedQuickUnionUF(n * n + 1);
+            return;
+        }
+        top = 0;
+        bottom = n * n - 1;
         union = new WeightedQuickUnionUF(n * n);
         union2 = new WeightedQuickUnionUF(n * n);
         for (int i = 1; i < n; i++) {
-            union.union(0, i);
-            union2.union(0, i);
+            unite(union, 0, i);
+            unite(union2, 0, i);
         }
         for (int i = n * n - 2; i > n * n - n - 1; i--) {
-            union.union(n * n - 1, i);
+            unite(union, n * n - 1, i);
         }
     }
 
@@ -60,21 +90,33 @@ public class Percolation {
         int index = unionIndex(row, col);
         openArray[index] = true;
         count++;
+        if (PercolationMetrics.ENABLED) {
+            opens++;
+        }
+        if (virtualSites) {
+            if (row == 1) {
+                unite(union, index, top);
+                unite(union2, index, top);
+            }
+            if (row == size) {
+                unite(union, index, bottom);
+            }
+        }
         if (row != 1 && isOpen(row - 1, col)) {
-            union.union(index, index - size);
-            union2.union(index, index - size);
+            unite(union, index, index - size);
+            unite(union2, index, index - size);
         }
         if (row != size && isOpen(row + 1, col)) {
-            union.union(index, index + size);
-            union2.union(index, index + size);
+            unite(union, index, index + size);
+            unite(union2, index, index + size);
         }
         if (col != 1 && isOpen(row, col - 1)) {
-            union.union(index, index - 1);
-            union2.union(index, index - 1);
+            unite(union, index, index - 1);
+            unite(union2, index, index - 1);
         }
         if (col != size && isOpen(row, col + 1)) {
-            union.union(index, index + 1);
-            union2.union(index, index + 1);
+            unite(union, index, index + 1);
+            unite(union2, index, index + 1);
         }
     }
 
@@ -98,7 +140,7 @@ public class Percolation {
      * @throws IllegalArgumentException if row or col is out of index
      */
     public boolean isFull(int row, int col) {
-        return isOpen(row, col) && (union2.find(unionIndex(row, col)) == union2.find(0));
+        return isOpen(row, col) && (root(union2, unionIndex(row, col)) == root(union2, top));
     }
 
     /**
@@ -116,10 +158,10 @@ public class Percolation {
      * @return True if system percolates
      */
     public boolean percolates() {
-        if (size == 1) {
+        if (size == 1 && !virtualSites) {
             return isOpen(1, 1);
         }
-        return union.find(0) == union.find(size * size - 1);
+        return root(union, top) == root(union, bottom);
     }
 
     /**
@@ -140,6 +182,39 @@ public class Percolation {
         return (row - 1) * size + col - 1;
     }
 
+    /**
+     * union() on uf, counted when metrics are enabled
+     */
+    private void unite(WeightedQuickUnionUF uf, int p, int q) {
+        if (PercolationMetrics.ENABLED) {
+            unions++;
+        }
+        uf.union(p, q);
+    }
+
+    /**
+     * find() on uf, counted when metrics are enabled
+     *
+     * @return root of p in uf
+     */
+    private int root(WeightedQuickUnionUF uf, int p) {
+        if (PercolationMetrics.ENABLED) {
+            finds++;
+        }
+        return uf.find(p);
+    }
+
+    /**
+     * Add the operation counters to metrics and start counting from zero.
+     * The path lengths stay inside WeightedQuickUnionUF and are not sampled.
+     */
+    void flushMetrics(PercolationMetrics metrics) {
+        metrics.add(opens, unions, finds, null);
+        opens = 0;
+        unions = 0;
+        finds = 0;
+    }
+
     /**
      * Simple test client <p>
      * Verify percolation API correctness.
@@ -172,5 +247,27 @@ public class Percolation {
         assert !percolation.isFull(2, 1) : "site (2, 1) should not full.";
         assert percolation.numberOfOpenSites() == 5 : "number of open sites = 5";
         StdOut.println("Percolation : " + percolation.percolates());
+
+        percolation = new Percolation(1, true);
+        assert !percolation.percolates() : "System should not percolate.";
+        percolation.open(1, 1);
+        assert percolation.percolates() : "System should percolate.";
+        for (int trial = 0; trial < 100; trial++) {
+            int n = StdRandom.uniformInt(1, 20);
+            Percolation rows = new Percolation(n);
+            Percolation sentinels = new Percolation(n, true);
+            while (!rows.percolates()) {
+                int row = StdRandom.uniformInt(1, n + 1);
+                int col = StdRandom.uniformInt(1, n + 1);
+                rows.open(row, col);
+                sentinels.open(row, col);
+                assert rows.percolates() == sentinels.percolates() : "percolates() mismatch";
+            }
+            for (int row = 1; row <= n; row++) {
+                for (int col = 1; col <= n; col++) {
+                    assert rows.isFull(row, col) == sentinels.isFull(row, col) : "isFull() mismatch";
+                }
+            }
+        }
     }
 }
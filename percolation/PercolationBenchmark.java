@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  PercolationBenchmark.java
+ * Execution:    java-algs4  PercolationBenchmark [numberOfTrials]
+ * Dependencies: algs4.jar
+ * <p>
+ * Single-threaded throughput of the PercolationStats trial strategies.
+ * Every strategy first runs a few warm-up trials so the JIT has compiled the
+ * hot loop, then the timed trials are reported as trials per second.
+ * The second part compares the two Percolation construction modes: the
+ * constructor cost, and open() throughput when opening every site of the
+ * grid in one random order. The last part checks whole bitmaps at p = 0.593
+ * with PercolationEvaluator against opening their sites in a Percolation.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.SplittableRandom;
+
+public class PercolationBenchmark {
+    private static final int[] SIZES = {1000, 4000};
+    private static final int WARMUP = 3;
+    private static final long SEED = 20230101L;
+    private static final double THRESHOLD = 0.593;
+
+    /**
+     * Time the given strategy on an n-by-n grid
+     *
+     * @return trials per second
+     */
+    private static double trialsPerSecond(int n, int trials, PercolationStats.Strategy strategy) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        PercolationTrial trial = new PercolationTrial(n, strategy);
+        for (int i = 0; i < WARMUP; i++) {
+            trial.run(random.split());
+        }
+        Stopwatch stopwatch = new Stopwatch();
+        for (int i = 0; i < trials; i++) {
+            trial.run(random.split());
+        }
+        return trials / stopwatch.elapsedTime();
+    }
+
+    /**
+     * Time the Percolation constructor in the given mode
+     *
+     * @return milliseconds per construction
+     */
+    private static double constructorMillis(int n, int repeats, boolean virtualSites) {
+        new Percolation(n, virtualSites);
+        Stopwatch stopwatch = new Stopwatch();
+        for (int i = 0; i < repeats; i++) {
+            new Percolation(n, virtualSites);
+        }
+        return stopwatch.elapsedTime() * 1000 / repeats;
+    }
+
+    /**
+     * Time opening every site of a Percolation in the given order, querying
+     * percolates() and isFull() after each open like a trial does
+     *
+     * @return open() calls per second
+     */
+    private static double opensPerSecond(int n, int[] order, boolean virtualSites) {
+        Percolation percolation = new Percolation(n, virtualSites);
+        Stopwatch stopwatch = new Stopwatch();
+        for (int site : order) {
+            int row = site / n + 1;
+            int col = site % n + 1;
+            percolation.open(row, col);
+            percolation.isFull(row, col);
+            percolation.percolates();
+        }
+        return order.length / stopwatch.elapsedTime();
+    }
+
+    /**
+     * Time answering percolates() for the bitmap, either with a fresh
+     * Percolation opening its sites row by row or with the evaluator
+     *
+     * @return bitmaps per second
+     */
+    private static double bitmapsPerSecond(int n, long[] bits, int repeats, boolean bulk) {
+        PercolationEvaluator evaluator = new PercolationEvaluator(n);
+        Stopwatch stopwatch = new Stopwatch();
+        for (int r = 0; r < repeats; r++) {
+            if (bulk) {
+                evaluator.percolates(bits);
+                continue;
+            }
+            Percolation percolation = new Percolation(n);
+            for (int i = 0; i < n * n; i++) {
+                if ((bits[i >>> 6] & (1L << i)) != 0) {
+                    percolation.open(i / n + 1, i % n + 1);
+                }
+            }
+            percolation.percolates();
+        }
+        return repeats / stopwatch.elapsedTime();
+    }
+
+    /**
+     * Benchmark client
+     * <p>
+     * Print trials/s of every strategy for each grid size.
+     */
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        for (int n : SIZES) {
+            double baseline = 0;
+            for (PercolationStats.Strategy strategy : PercolationStats.Strategy.values()) {
+                double rate = trialsPerSecond(n, trials, strategy);
+                if (baseline == 0) {
+                    baseline = rate;
+                }
+                StdOut.printf("n = %5d  %-12s %10.3f trials/s  (x%.2f)%n",
+                              n, strategy, rate, rate / baseline);
+            }
+        }
+        for (int n : SIZES) {
+            int[] order = StdRandom.permutation(n * n);
+            for (boolean virtualSites : new boolean[] {false, true}) {
+                String mode = virtualSites ? "sentinels" : "rows";
+                StdOut.printf("n = %5d  %-12s new %8.2f ms   open %12.0f ops/s%n", n, mode,
+                              constructorMillis(n, trials, virtualSites),
+                              opensPerSecond(n, order, virtualSites));
+            }
+        }
+        for (int n : SIZES) {
+            long[] bits = new long[(n * n + 63) >>> 6];
+            for (int i = 0; i < n * n; i++) {
+                if (StdRandom.bernoulli(THRESHOLD)) {
+                    bits[i >>> 6] |= 1L << i;
+                }
+            }
+            for (boolean bulk : new boolean[] {false, true}) {
+                bitmapsPerSecond(n, bits, WARMUP, bulk);
+                StdOut.printf("n = %5d  %-12s %10.3f bitmaps/s%n", n,
+                              bulk ? "evaluator" : "Percolation",
+                              bitmapsPerSecond(n, bits, trials, bulk));
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  PercolationCheckpoint.java
+ * Execution:    java-algs4  PercolationCheckpoint
+ * Dependencies: algs4.jar
+ * <p>
+ * Binary checkpoint of a PercolationStats run, written after every batch.
+ * Trial i always uses the i-th stream split off the master seed, so the RNG
+ * position is just the number of trials done: resuming re-splits that many
+ * streams and carries on. Next to it the file keeps the exact RunningStats
+ * of the thresholds and cluster statistics and, sparsely, the cluster size
+ * histogram, behind a header identifying the run. The file is written to a
+ * sibling and atomically moved over the old one, so a kill at any moment
+ * leaves either the previous or the new checkpoint on disk.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+class PercolationCheckpoint {
+    private static final int MAGIC = 0x50435054;
+    private static final int VERSION = 1;
+    private static final int STATS_BYTES = 24;
+
+    private final Path file;
+    private final Path temp;
+    private final long[] key;
+
+    /**
+     * Checkpoint of the run identified by key stored in file
+     *
+     * @param key every setting the results depend on, compared on load()
+     */
+    PercolationCheckpoint(Path file, long... key) {
+        this.file = file;
+        this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+        this.key = key.clone();
+    }
+
+    /**
+     * Restore the state of an earlier run into the given accumulators
+     *
+     * @param sizeCounts histogram to add the saved counts to, or null
+     * @return number of trials done, 0 if there is no checkpoint yet
+     * @throws IllegalArgumentException if the file belongs to another run
+     * @throws UncheckedIOException     if the file cannot be read
+     */
+    int load(RunningStats stats, RunningStats clusters, RunningStats largest, long[] sizeCounts) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            int read = 0;
+            while (buffer.hasRemaining() && read >= 0) {
+                read = channel.read(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getInt() != key.length) {
+            throw new IllegalArgumentException("Not a checkpoint: " + file);
+        }
+        for (long k : key) {
+            if (buffer.getLong() != k) {
+                throw new IllegalArgumentException("Checkpoint belongs to another run: " + file);
+            }
+        }
+        int done = buffer.getInt();
+        stats.readFrom(buffer);
+        clusters.readFrom(buffer);
+        largest.readFrom(buffer);
+        int entries = buffer.getInt();
+        for (int i = 0; i < entries; i++) {
+            int size = buffer.getInt();
+            long count = buffer.getLong();
+            if (sizeCounts != null) {
+                sizeCounts[size] += count;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Replace the checkpoint by the state after done trials
+     *
+     * @param sizeCounts histogram so far, or null
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    void save(int done, RunningStats stats, RunningStats clusters, RunningStats largest,
+              long[] sizeCounts) {
+        int entries = 0;
+        if (sizeCounts != null) {
+            for (long count : sizeCounts) {
+                if (count != 0) entries++;
+            }
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(
+                16 + 8 * key.length + 3 * STATS_BYTES + 4 + 12 * entries);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(key.length);
+        for (long k : key) {
+            buffer.putLong(k);
+        }
+        buffer.putInt(done);
+        stats.writeTo(buffer);
+        clusters.writeTo(buffer);
+        largest.writeTo(buffer);
+        buffer.putInt(entries);
+        if (sizeCounts != null) {
+            for (int size = 0; size < sizeCounts.length; size++) {
+                if (sizeCounts[size] != 0) {
+                    buffer.putInt(size).putLong(sizeCounts[size]);
+                }
+            }
+        }
+        buffer.flip();
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Simple test client <p>
+     * Kill a run after two batches, resume it and compare with an
+     * uninterrupted run of the same seed.
+     */
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("percolation", ".ckpt");
+        Files.delete(file);
+        int n = 50;
+        int trials = 500;
+        PercolationStats expected = new PercolationStats(n, trials, new PercolationStats.Options()
+                .seed(42).threads(3).clusterHistogram(true));
+
+        int[] batches = {0};
+        try {
+            new PercolationStats(n, trials, new PercolationStats.Options()
+                    .seed(42).threads(2).clusterHistogram(true).checkpoint(file, 60)
+                    .reportEvery(100, stats -> {
+                        if (++batches[0] == 2) throw new IllegalStateException("killed");
+                    }));
+            assert false : "run should have been killed";
+        } catch (IllegalStateException e) {
+            StdOut.println("killed after " + batches[0] + " batches");
+        }
+        // other thread count, checkpoint interval and reporting batch
+        PercolationStats resumed = new PercolationStats(n, trials, new PercolationStats.Options()
+                .seed(42).threads(4).clusterHistogram(true).reportEvery(70, stats -> { })
+                .checkpoint(file, 100));
+        assert resumed.mean() == expected.mean() && resumed.stddev() == expected.stddev()
+                : "resumed run should match the uninterrupted one";
+        assert resumed.meanClusters() == expected.meanClusters()
+                && resumed.meanLargestCluster() == expected.meanLargestCluster()
+                : "cluster statistics mismatch";
+        assert Arrays.equals(resumed.clusterSizeCounts(), expected.clusterSizeCounts())
+                : "histogram mismatch";
+
+        try {
+            new PercolationStats(n, trials, new PercolationStats.Options()
+                    .seed(43).clusterHistogram(true).checkpoint(file, 100));
+            assert false : "another seed should not resume this checkpoint";
+        } catch (IllegalArgumentException e) {
+            StdOut.println(e.getMessage());
+        }
+        StdOut.println("mean = " + resumed.mean() + ", checkpoint " + Files.size(file) + " bytes");
+        Files.delete(file);
+    }
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  PercolationCurve.java
+ * Execution:    java-algs4  PercolationCurve <sizeofGrid> <numberOfTrials> [seed]
+ * Dependencies: algs4.jar
+ * <p>
+ * Newman-Ziff sweep: every trial opens all n*n sites of a FastPercolation in
+ * one random order and records, after each opening, whether the grid
+ * percolates and the size of the largest cluster. Aggregated over the trials
+ * this gives the curves as functions of the number k of open sites. The
+ * curve at an occupation probability p is then the binomial average over k,
+ * so one run answers every p without re-simulating.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.SplittableRandom;
+import java.util.function.IntToDoubleFunction;
+
+public class PercolationCurve {
+    private static final double CUTOFF = 1e-16;
+
+    private final int sites;
+    private final int trials;
+    private final int[] percolating;
+    private final long[] largestSum;
+
+    /**
+     * Sweep trials random orders on an n-by-n grid
+     *
+     * @param seed master seed, trial i uses the i-th stream split from it
+     * @throws IllegalArgumentException if n or trials <= 0
+     */
+    public PercolationCurve(int n, int trials, long seed) {
+        if (n <= 0 || trials <= 0) {
+            throw new IllegalArgumentException("Invalid n or trials!");
+        }
+        this.trials = trials;
+        sites = n * n;
+        percolating = new int[sites + 1];
+        largestSum = new long[sites + 1];
+        SplittableRandom master = new SplittableRandom(seed);
+        int[] order = new int[sites];
+        for (int i = 0; i < sites; i++) {
+            order[i] = i;
+        }
+        FastPercolation percolation = new FastPercolation(n);
+        for (int t = 0; t < trials; t++) {
+            SplittableRandom random = master.split();
+            percolation.reset();
+            int threshold = 0;
+            for (int k = 0; k < sites; k++) {
+                int j = k + random.nextInt(sites - k);
+                int site = order[j];
+                order[j] = order[k];
+                order[k] = site;
+                percolation.open(site / n + 1, site % n + 1);
+                largestSum[k + 1] += percolation.largestCluster();
+                if (threshold == 0 && percolation.percolates()) {
+                    threshold = k + 1;
+                }
+            }
+            percolating[threshold]++;
+        }
+        for (int k = 1; k <= sites; k++) {
+            percolating[k] += percolating[k - 1];
+        }
+    }
+
+    /**
+     * Number of sites of the grid
+     *
+     * @return n * n
+     */
+    public int sites() {
+        return sites;
+    }
+
+    /**
+     * Number of trials aggregated in the curves
+     *
+     * @return number of trials
+     */
+    public int trials() {
+        return trials;
+    }
+
+    /**
+     * Fraction of trials that percolate with exactly k open sites
+     *
+     * @return P(k)
+     * @throws IllegalArgumentException if k is not in [0, n*n]
+     */
+    public double percolationProbability(int k) {
+        validate(k);
+        return (double) percolating[k] / trials;
+    }
+
+    /**
+     * Mean fraction of the sites in the largest cluster with exactly k open sites
+     *
+     * @return largest cluster size / (n*n), averaged over the trials
+     * @throws IllegalArgumentException if k is not in [0, n*n]
+     */
+    public double largestClusterFraction(int k) {
+        validate(k);
+        return (double) largestSum[k] / trials / sites;
+    }
+
+    /**
+     * Probability that the grid percolates when each site is open with probability p
+     *
+     * @return P(p)
+     * @throws IllegalArgumentException if p is not in [0, 1]
+     */
+    public double percolationProbability(double p) {
+        return binomialAverage(p, this::percolationProbability);
+    }
+
+    /**
+     * Mean fraction of the sites in the largest cluster when each site is open
+     * with probability p
+     *
+     * @return largest cluster size / (n*n)
+     * @throws IllegalArgumentException if p is not in [0, 1]
+     */
+    public double largestClusterFraction(double p) {
+        return binomialAverage(p, this::largestClusterFraction);
+    }
+
+    /**
+     * Average of curve(k) weighted by the Binomial(n*n, p) probabilities of k.
+     * The weights are built outward from the mode by their successive ratios
+     * and dropped once they are negligible, so no factorials are evaluated.
+     *
+     * @return sum over k of B(n*n, k, p) * curve(k)
+     */
+    private double binomialAverage(double p, IntToDoubleFunction curve) {
+        if (!(p >= 0 && p <= 1)) {
+            throw new IllegalArgumentException("Invalid p!");
+        }
+        if (p == 0) {
+            return curve.applyAsDouble(0);
+        }
+        if (p == 1) {
+            return curve.applyAsDouble(sites);
+        }
+        double odds = p / (1 - p);
+        int mode = (int) Math.min(sites, Math.floor((sites + 1) * p));
+        double total = 1;
+        double sum = curve.applyAsDouble(mode);
+        double weight = 1;
+        for (int k = mode; k < sites && weight > CUTOFF; k++) {
+            weight *= (double) (sites - k) / (k + 1) * odds;
+            total += weight;
+            sum += weight * curve.applyAsDouble(k + 1);
+        }
+        weight = 1;
+        for (int k = mode; k > 0 && weight > CUTOFF; k--) {
+            weight *= (double) k / (sites - k + 1) / odds;
+            total += weight;
+            sum += weight * curve.applyAsDouble(k - 1);
+        }
+        return sum / total;
+    }
+
+    private void validate(int k) {
+        if (k < 0 || k > sites) {
+            throw new IllegalArgumentException("Invalid k!");
+        }
+    }
+
+    /**
+     * Test client
+     * <p>
+     * Print P(p) and the largest cluster fraction around the threshold.
+     */
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+        PercolationCurve curve = new PercolationCurve(n, trials, seed);
+        assert curve.percolationProbability(0) == 0 : "empty grid should not percolate";
+        assert curve.percolationProbability(curve.sites()) == 1 : "full grid should percolate";
+        StdOut.println("p       P(p)      largest");
+        for (int i = 50; i <= 70; i++) {
+            double p = i / 100.0;
+            StdOut.printf("%.2f    %.6f  %.6f%n", p, curve.percolationProbability(p),
+                          curve.largestClusterFraction(p));
+        }
+    }
+}
@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  PercolationEvaluator.java
+ * Execution:    java-algs4  PercolationEvaluator [file n]
+ * Dependencies: algs4.jar
+ * <p>
+ * Bulk "does this grid percolate?" check for whole occupancy bitmaps, no
+ * incremental open(). A bitmap stores site (row, col) at bit
+ * i = (row - 1) * n + col - 1, i.e. bit i & 63 of long word i >>> 6, the
+ * layout of LongPercolation. The grid is scanned row by row with a
+ * Hoshen-Kopelman labelling on runs: the maximal horizontal runs of open
+ * sites are found a word at a time with numberOfTrailingZeros, every run
+ * gets a label, is unioned with the labels of the runs it overlaps in the
+ * row above, and each label remembers whether it is connected to the top
+ * row. After each row the labels are renumbered, so only the runs of two
+ * rows and a union-find over their labels are ever alive. The scan stops as
+ * soon as a row has no site connected to the top.
+ * A file of back-to-back bitmaps is evaluated through memory-mapped windows.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public class PercolationEvaluator {
+    private static final int NONE = -1;
+
+    private final int n;
+    private final int words;
+    private int[] aboveStart;
+    private int[] aboveEnd;
+    private int[] aboveLabel;
+    private int[] belowStart;
+    private int[] belowEnd;
+    private int[] belowLabel;
+    private final int[] parent;
+    private final boolean[] top;
+    private final int[] remap;
+    private final boolean[] carried;
+
+    /**
+     * Scratch space for n-by-n bitmaps, reused by every call
+     *
+     * @throws IllegalArgumentException if n <= 0 or a bitmap would not fit a long[]
+     */
+    public PercolationEvaluator(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Invalid n!");
+        }
+        long bitmapWords = ((long) n * n + 63) >>> 6;
+        if (bitmapWords > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("n too large!");
+        }
+        this.n = n;
+        words = (int) bitmapWords;
+        int runs = n / 2 + 1;
+        aboveStart = new int[runs];
+        aboveEnd = new int[runs];
+        aboveLabel = new int[runs];
+        belowStart = new int[runs];
+        belowEnd = new int[runs];
+        belowLabel = new int[runs];
+        parent = new int[2 * runs];
+        top = new boolean[2 * runs];
+        remap = new int[2 * runs];
+        carried = new boolean[runs];
+        Arrays.fill(remap, NONE);
+    }
+
+    /**
+     * Number of long words of one bitmap
+     *
+     * @return ceil(n * n / 64)
+     */
+    public int words() {
+        return words;
+    }
+
+    /**
+     * Check if the bitmap percolates
+     *
+     * @throws IllegalArgumentException if bits is null or shorter than words()
+     */
+    public boolean percolates(long[] bits) {
+        if (bits == null || bits.length < words) {
+            throw new IllegalArgumentException("Invalid bitmap!");
+        }
+        return percolates(LongBuffer.wrap(bits), 0);
+    }
+
+    /**
+     * Check if the bitmap stored at bits[from, from + words()) percolates,
+     * reading with absolute gets so the buffer position is untouched
+     *
+     * @throws IllegalArgumentException if bits is null or too short
+     */
+    public boolean percolates(LongBuffer bits, int from) {
+        if (bits == null || from < 0 || from > bits.limit() - words) {
+            throw new IllegalArgumentException("Invalid bitmap!");
+        }
+        int aboveRuns = 0;
+        for (int row = 0; row < n; row++) {
+            long rowStart = (long) row * n;
+            long rowEnd = rowStart + n;
+            int runs = 0;
+            int labels = aboveRuns;
+            int j = 0;
+            long s = nextSet(bits, from, rowStart, rowEnd);
+            while (s < rowEnd) {
+                long e = nextClear(bits, from, s, rowEnd);
+                int start = (int) (s - rowStart);
+                int end = (int) (e - rowStart);
+                int label = labels++;
+                parent[label] = label;
+                top[label] = row == 0;
+                while (j < aboveRuns && aboveEnd[j] <= start) {
+                    j++;
+                }
+                for (int k = j; k < aboveRuns && aboveStart[k] < end; k++) {
+                    union(label, aboveLabel[k]);
+                }
+                belowStart[runs] = start;
+                belowEnd[runs] = end;
+                belowLabel[runs++] = label;
+                s = nextSet(bits, from, e, rowEnd);
+            }
+            // renumber the roots of this row to [0, next), carrying their top flags
+            int next = 0;
+            boolean reached = false;
+            for (int i = 0; i < runs; i++) {
+                int root = find(belowLabel[i]);
+                if (remap[root] == NONE) {
+                    carried[next] = top[root];
+                    reached |= top[root];
+                    remap[root] = next++;
+                }
+                belowLabel[i] = remap[root];
+            }
+            Arrays.fill(remap, 0, labels, NONE);
+            if (!reached) {
+                return false;
+            }
+            for (int label = 0; label < next; label++) {
+                parent[label] = label;
+                top[label] = carried[label];
+            }
+            int[] tmp = aboveStart;
+            aboveStart = belowStart;
+            belowStart = tmp;
+            tmp = aboveEnd;
+            aboveEnd = belowEnd;
+            belowEnd = tmp;
+            tmp = aboveLabel;
+            aboveLabel = belowLabel;
+            belowLabel = tmp;
+            aboveRuns = runs;
+        }
+        return true;
+    }
+
+    /**
+     * First open site in [index, end) of the bitmap at from, a word at a time
+     *
+     * @return its index, end if there is none
+     */
+    private static long nextSet(LongBuffer bits, int from, long index, long end) {
+        if (index >= end) {
+            return end;
+        }
+        int w = (int) (index >>> 6);
+        long word = bits.get(from + w) & (-1L << index);
+        while (word == 0) {
+            if ((long) ++w << 6 >= end) {
+                return end;
+            }
+            word = bits.get(from + w);
+        }
+        return Math.min(end, ((long) w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * First blocked site in [index, end) of the bitmap at from, a word at a time
+     *
+     * @return its index, end if there is none
+     */
+    private static long nextClear(LongBuffer bits, int from, long index, long end) {
+        int w = (int) (index >>> 6);
+        long word = ~bits.get(from + w) & (-1L << index);
+        while (word == 0) {
+            if ((long) ++w << 6 >= end) {
+                return end;
+            }
+            word = ~bits.get(from + w);
+        }
+        return Math.min(end, ((long) w << 6) + Long.numberOfTrailingZeros(word));
+    }
+
+    /**
+     * Evaluate a file of back-to-back bitmaps of words() big-endian longs,
+     * mapping it into memory a window of whole bitmaps at a time
+     *
+     * @return percolates[k] for the k-th bitmap of the file
+     * @throws IllegalArgumentException if the file size is not a multiple of the bitmap size
+     * @throws IOException              if the file cannot be read
+     */
+    public boolean[] percolates(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long bytes = 8L * words;
+            long size = channel.size();
+            if (size % bytes != 0 || size / bytes > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Invalid bitmap file!");
+            }
+            boolean[] percolates = new boolean[(int) (size / bytes)];
+            int perWindow = (int) Math.max(1, Integer.MAX_VALUE / bytes);
+            for (int k = 0; k < percolates.length; k += perWindow) {
+                int count = Math.min(perWindow, percolates.length - k);
+                LongBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, k * bytes,
+                                                count * bytes).asLongBuffer();
+                for (int i = 0; i < count; i++) {
+                    percolates[k + i] = percolates(window, i * words);
+                }
+            }
+            return percolates;
+        }
+    }
+
+    private int find(int p) {
+        while (p != parent[p]) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    private void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) {
+            return;
+        }
+        parent[rootQ] = rootP;
+        top[rootP] |= top[rootQ];
+    }
+
+    /**
+     * Simple test client <p>
+     * With [file n] print how many bitmaps of the file percolate. Otherwise
+     * check random grids against Percolation, from memory and from a file.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 2) {
+            PercolationEvaluator evaluator = new PercolationEvaluator(Integer.parseInt(args[1]));
+            boolean[] percolates = evaluator.percolates(Paths.get(args[0]));
+            int count = 0;
+            for (boolean p : percolates) {
+                if (p) count++;
+            }
+            StdOut.println(count + " of " + percolates.length + " bitmaps percolate");
+            return;
+        }
+        Path file = Files.createTempFile("bitmaps", ".bin");
+        for (int n = 1; n <= 40; n++) {
+            PercolationEvaluator evaluator = new PercolationEvaluator(n);
+            int grids = 50;
+            boolean[] expected = new boolean[grids];
+            ByteBuffer all = ByteBuffer.allocate(8 * evaluator.words() * grids);
+            for (int g = 0; g < grids; g++) {
+                double p = StdRandom.uniformDouble(0.4, 0.8);
+                Percolation percolation = new Percolation(n);
+                long[] bits = new long[evaluator.words()];
+                for (int i = 0; i < n * n; i++) {
+                    if (StdRandom.bernoulli(p)) {
+                        percolation.open(i / n + 1, i % n + 1);
+                        bits[i >>> 6] |= 1L << i;
+                    }
+                }
+                expected[g] = percolation.percolates();
+                assert evaluator.percolates(bits) == expected[g] : "percolates() mismatch";
+                all.asLongBuffer().put(g * evaluator.words(), bits);
+            }
+            Files.write(file, all.array());
+            assert Arrays.equals(evaluator.percolates(file), expected) : "file mismatch";
+        }
+        Files.delete(file);
+
+        PercolationEvaluator evaluator = new PercolationEvaluator(3);
+        long u = 1L | 1L << 2 | 1L << 3 | 1L << 5 | 1L << 6 | 1L << 7 | 1L << 8;
+        assert evaluator.percolates(new long[] {u}) : "U-shape with both arms open percolates";
+        assert !evaluator.percolates(new long[] {u & ~(1L | 1L << 2)}) : "top row blocked";
+        StdOut.println("PercolationEvaluator agrees with Percolation");
+    }
+}
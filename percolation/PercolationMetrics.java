@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  PercolationMetrics.java
+ * Execution:    java-algs4  -ea -Dpercolation.metrics=true PercolationMetrics
+ * Dependencies: algs4.jar
+ * <p>
+ * Opt-in hot-path counters for the percolation engines. The engines only
+ * count when the JVM runs with -Dpercolation.metrics=true: ENABLED is a
+ * static final constant, so otherwise the JIT folds every counting branch
+ * away. While counting, each engine bumps plain long fields of its own,
+ * no sharing and no atomics on the hot path, and flushes them into the
+ * LongAdders of a PercolationMetrics once per trial. Every 16th find also
+ * samples its path length, the number of path halving steps, into a
+ * histogram. Per-trial wall clock times are recorded whenever a
+ * PercolationMetrics is passed to PercolationStats, flag or not.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class PercolationMetrics {
+    /** True if the engines count union/find operations */
+    public static final boolean ENABLED = Boolean.getBoolean("percolation.metrics");
+    /** Finds whose index is 0 modulo SAMPLE_MASK + 1 are sampled */
+    static final int SAMPLE_MASK = 15;
+    /** Path lengths of at least MAX_PATH share the last bucket */
+    static final int MAX_PATH = 32;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final LongAdder opens = new LongAdder();
+    private final LongAdder unions = new LongAdder();
+    private final LongAdder finds = new LongAdder();
+    private final LongAdder[] paths = new LongAdder[MAX_PATH + 1];
+    private final RunningStats trialMillis = new RunningStats();
+    private long maxTrialNanos = 0;
+
+    /**
+     * Creates empty metrics
+     */
+    public PercolationMetrics() {
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Fold the counters of one engine in, called by the engines
+     *
+     * @param sampled sampled[l] = sampled finds of path length l, may be null
+     */
+    void add(long opened, long unioned, long found, long[] sampled) {
+        opens.add(opened);
+        unions.add(unioned);
+        finds.add(found);
+        if (sampled != null) {
+            for (int l = 0; l < sampled.length; l++) {
+                if (sampled[l] != 0) {
+                    paths[l].add(sampled[l]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record the wall clock time of one trial
+     */
+    synchronized void addTrial(long nanos) {
+        trialMillis.add(nanos / NANOS_PER_MILLI);
+        maxTrialNanos = Math.max(maxTrialNanos, nanos);
+    }
+
+    /**
+     * Number of sites opened (open() calls on a blocked site)
+     *
+     * @return opened sites
+     */
+    public long opens() {
+        return opens.sum();
+    }
+
+    /**
+     * Number of union() calls, including those of already joined sites
+     *
+     * @return union calls
+     */
+    public long unions() {
+        return unions.sum();
+    }
+
+    /**
+     * Number of find() calls. The union-find engines include the two made by
+     * every union(), Percolation only its own WeightedQuickUnionUF.find() calls.
+     *
+     * @return find calls
+     */
+    public long finds() {
+        return finds.sum();
+    }
+
+    /**
+     * Number of sampled finds that took length halving steps
+     *
+     * @return sampled finds, the last bucket counts every length >= 32
+     * @throws IllegalArgumentException if length is not in [0, 32]
+     */
+    public long pathLengthCount(int length) {
+        if (length < 0 || length > MAX_PATH) {
+            throw new IllegalArgumentException("Invalid length!");
+        }
+        return paths[length].sum();
+    }
+
+    /**
+     * Mean path length of the sampled finds
+     *
+     * @return mean halving steps, NaN if nothing was sampled
+     */
+    public double meanPathLength() {
+        long count = 0;
+        long total = 0;
+        for (int l = 0; l <= MAX_PATH; l++) {
+            long c = paths[l].sum();
+            count += c;
+            total += c * l;
+        }
+        return count == 0 ? Double.NaN : (double) total / count;
+    }
+
+    /**
+     * Number of timed trials
+     *
+     * @return timed trials
+     */
+    public synchronized long trials() {
+        return trialMillis.count();
+    }
+
+    /**
+     * Mean wall clock time of a trial
+     *
+     * @return milliseconds, NaN if no trial was timed
+     */
+    public synchronized double meanTrialMillis() {
+        return trialMillis.mean();
+    }
+
+    /**
+     * Sample standard deviation of the trial times
+     *
+     * @return milliseconds, NaN if fewer than two trials were timed
+     */
+    public synchronized double stddevTrialMillis() {
+        return trialMillis.stddev();
+    }
+
+    /**
+     * Slowest trial
+     *
+     * @return milliseconds
+     */
+    public synchronized double maxTrialMillis() {
+        return maxTrialNanos / NANOS_PER_MILLI;
+    }
+
+    /**
+     * Multi-line report of all counters
+     *
+     * @return the report
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("trials                  = %d, %.3f ms mean, %.3f ms stddev,"
+                                    + " %.3f ms max%n", trials(), meanTrialMillis(),
+                                    stddevTrialMillis(), maxTrialMillis()));
+        if (!ENABLED) {
+            report.append("union/find counters     = off, run with -Dpercolation.metrics=true")
+                  .append(System.lineSeparator());
+            return report.toString();
+        }
+        long opened = opens();
+        report.append(String.format("opens                   = %d%n", opened));
+        report.append(String.format("unions                  = %d (%.3f per open)%n",
+                                    unions(), (double) unions() / opened));
+        report.append(String.format("finds                   = %d (%.3f per open)%n",
+                                    finds(), (double) finds() / opened));
+        if (Double.isNaN(meanPathLength())) {
+            return report.toString();
+        }
+        report.append(String.format("mean find path length   = %.4f%n", meanPathLength()));
+        report.append("find path lengths       =");
+        for (int l = 0; l <= MAX_PATH; l++) {
+            long c = pathLengthCount(l);
+            if (c != 0) {
+                report.append(' ').append(l == MAX_PATH ? ">=" : "").append(l)
+                      .append(':').append(c);
+            }
+        }
+        return report.append(System.lineSeparator()).toString();
+    }
+
+    /**
+     * Simple test client <p>
+     * Count the operations of a FastPercolation and a Percolation trial.
+     */
+    public static void main(String[] args) {
+        PercolationMetrics metrics = new PercolationMetrics();
+        FastPercolation percolation = new FastPercolation(3);
+        percolation.open(1, 1);
+        percolation.open(2, 1);
+        percolation.open(3, 1);
+        assert percolation.percolates() : "System should percolate.";
+        percolation.flushMetrics(metrics);
+        metrics.addTrial(1000000);
+        if (ENABLED) {
+            assert metrics.opens() == 3 && metrics.unions() == 2 : "3 opens, 2 unions";
+            assert metrics.finds() == 2 * 2 + 3 : "two finds per union, one per settle()";
+            assert metrics.pathLengthCount(0) == 1 : "first find is sampled, a root";
+        } else {
+            assert metrics.opens() == 0 && metrics.finds() == 0 : "counting is off";
+        }
+
+        PercolationStats stats = new PercolationStats(50, 20, metrics);
+        assert metrics.trials() == 21 : "every trial is timed";
+        StdOut.println("mean = " + stats.mean());
+        StdOut.print(metrics);
+    }
+}
@@ -4,26 +4,243 @@
  * <p>
  * Compilation:  javac-algs4  PercolationStats.java
  * Execution:    java-algs4  PercolationStats <sizeofGrid> <numberOfTrials>
+ *                   [seed threads [strategy [tolerance [lattice [model [checkpoint]]]]]]
  * Dependencies: algs4.jar
- *
+ * <p>
+ * With a seed and a thread count the trials are split across a fork/join
+ * pool. Trial i draws from the i-th stream split off SplittableRandom(seed),
+ * so the statistics only depend on the seed, never on the number of threads.
+ * Those runs keep one engine per pool thread and reset it between trials.
+ * With only sizeofGrid and numberOfTrials the trials run one after another
+ * on a new Percolation each, the assignment's API: its WeightedQuickUnionUF
+ * has no reset, so every trial allocates the n-by-n grid again.
+ * The Strategy picks how a trial chooses the next site to open.
+ * With a tolerance the run reports its progress every 100 trials and stops as
+ * soon as the 95% confidence interval is narrow enough (0 disables it).
+ * The lattice (default SQUARE) makes sizeofGrid the width of that Lattice,
+ * the model (default SITE) switches to BOND or DIRECTED percolation.
+ * With a checkpoint file the run saves its progress every 100 trials and,
+ * started again with the same arguments, resumes where it stopped.
+ * Run with -Dpercolation.metrics=true to also print the union/find
+ * operation counts and find path lengths next to the trial timings.
  ******************************************************************************/
 
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 public class PercolationStats {
     private static final double CONFIDENCE_95 = 1.96;
+    private static final int TASKS_PER_THREAD = 8;
+    private static final int DEFAULT_BATCH = 4096;
+    private static final int REPORT_EVERY = 100;
     private final double mean;
     private final double stddev;
     private final int trial;
+    private final double meanClusters;
+    private final double meanLargestCluster;
+    private final long[] clusterSizeCounts;
+
+    /**
+     * How a parallel trial picks the sites to open
+     */
+    public enum Strategy {
+        /** Draw random (row, col) pairs, already open sites are drawn again */
+        REJECTION,
+        /** Walk a lazily shuffled permutation of the n*n sites, every draw opens a new site */
+        PERMUTATION,
+        /** Shuffle the whole opening order, then binary-search the shortest percolating prefix */
+        BINARY_SEARCH
+    }
+
+    /**
+     * What opens during a parallel trial
+     */
+    public enum Model {
+        /** Site percolation, sites open (any Lattice) */
+        SITE,
+        /** Bond percolation, bonds between sites open (square lattice, n >= 2) */
+        BOND,
+        /** Directed site percolation, the fluid never flows up (square lattice) */
+        DIRECTED
+    }
+
+    /**
+     * Knobs of the parallel trial runner, set with chained calls
+     */
+    public static class Options {
+        private long seed = System.nanoTime();
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private Strategy strategy = Strategy.REJECTION;
+        private Lattice lattice = Lattice.SQUARE;
+        private Model model = Model.SITE;
+        private boolean clusterHistogram = false;
+        private int batch = DEFAULT_BATCH;
+        private Consumer<RunningStats> reporter = null;
+        private double tolerance = 0;
+        private Path checkpoint = null;
+        private int checkpointEvery = 0;
+        private PercolationMetrics metrics = null;
+
+        /**
+         * Master seed, every trial gets its own stream split from it
+         */
+        public Options seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Parallelism of the fork/join pool
+         *
+         * @throws IllegalArgumentException if threads <= 0
+         */
+        public Options threads(int threads) {
+            if (threads <= 0) {
+                throw new IllegalArgumentException("Invalid threads!");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * How each trial picks the sites to open
+         *
+         * @throws IllegalArgumentException if strategy is null
+         */
+        public Options strategy(Strategy strategy) {
+            if (strategy == null) {
+                throw new IllegalArgumentException("Null strategy!");
+            }
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * Lattice the sites live on, n is then its width
+         *
+         * @throws IllegalArgumentException if lattice is null
+         */
+        public Options lattice(Lattice lattice) {
+            if (lattice == null) {
+                throw new IllegalArgumentException("Null lattice!");
+            }
+            this.lattice = lattice;
+            return this;
+        }
+
+        /**
+         * Percolation model, the threshold is the fraction of open sites, or
+         * of open bonds for BOND
+         *
+         * @throws IllegalArgumentException if model is null
+         */
+        public Options model(Model model) {
+            if (model == null) {
+                throw new IllegalArgumentException("Null model!");
+            }
+            this.model = model;
+            return this;
+        }
+
+        /**
+         * Also sum up the sizes of all clusters at the percolation point of
+         * every trial, see clusterSizeCounts()
+         */
+        public Options clusterHistogram(boolean clusterHistogram) {
+            this.clusterHistogram = clusterHistogram;
+            return this;
+        }
+
+        /**
+         * Run the trials in batches of k and hand the running statistics to
+         * reporter after each batch
+         *
+         * @throws IllegalArgumentException if k <= 0 or reporter is null
+         */
+        public Options reportEvery(int k, Consumer<RunningStats> reporter) {
+            if (k <= 0 || reporter == null) {
+                throw new IllegalArgumentException("Invalid k or reporter!");
+            }
+            this.batch = k;
+            this.reporter = reporter;
+            return this;
+        }
+
+        /**
+         * Stop early once the half width of the 95% confidence interval is at
+         * most tolerance, checked after every batch
+         *
+         * @throws IllegalArgumentException if tolerance < 0
+         */
+        public Options tolerance(double tolerance) {
+            if (!(tolerance >= 0)) {
+                throw new IllegalArgumentException("Invalid tolerance!");
+            }
+            this.tolerance = tolerance;
+            return this;
+        }
+
+        /**
+         * Save the progress to file after every k trials, and resume from
+         * file if it already holds a checkpoint of the same run (n, trials,
+         * seed, strategy, lattice, model and histogram). The thread count,
+         * the tolerance, k and the reporting batch may differ on resume.
+         *
+         * @throws IllegalArgumentException if file is null or k <= 0
+         */
+        public Options checkpoint(Path file, int k) {
+            if (file == null || k <= 0) {
+                throw new IllegalArgumentException("Invalid file or k!");
+            }
+            this.checkpoint = file;
+            this.checkpointEvery = k;
+            return this;
+        }
+
+        /**
+         * Time every trial and collect the operation counters of the engines
+         * into metrics, see PercolationMetrics
+         *
+         * @throws IllegalArgumentException if metrics is null
+         */
+        public Options metrics(PercolationMetrics metrics) {
+            if (metrics == null) {
+                throw new IllegalArgumentException("Null metrics!");
+            }
+            this.metrics = metrics;
+            return this;
+        }
+    }
 
     /**
-     * Perform independent trials on an n-by-n grid
+     * Perform independent trials on an n-by-n grid with Percolation. Each
+     * trial allocates a new Percolation, which cannot be reset; the Options
+     * constructor reuses one engine per thread. The cluster statistics stay
+     * NaN, use the Options constructor for them.
      *
      * @throws IllegalArgumentException if n or trials <= 0
      */
     public PercolationStats(int n, int trials) {
+        this(n, trials, (PercolationMetrics) null);
+    }
+
+    /**
+     * Perform independent trials on an n-by-n grid, timing every trial and
+     * collecting the operation counters of each Percolation into metrics
+     *
+     * @param metrics where to report, null for no reporting
+     * @throws IllegalArgumentException if n or trials <= 0
+     */
+    public PercolationStats(int n, int trials, PercolationMetrics metrics) {
         if (n <= 0 || trials <= 0) {
             throw new IllegalArgumentException("Invalid n or trials!");
         }
@@ -31,18 +248,252 @@ public class PercolationStats {
         Percolation percolation;
         int row;
         int col;
-        int[] counts = new int[trials];
+        RunningStats stats = new RunningStats();
         for (int i = 0; i < trials; i++) {
+            long start = System.nanoTime();
             percolation = new Percolation(n);
             while (!percolation.percolates()) {
                 row = StdRandom.uniformInt(1, n + 1);
                 col = StdRandom.uniformInt(1, n + 1);
                 percolation.open(row, col);
             }
-            counts[i] = percolation.numberOfOpenSites();
+            stats.add((double) percolation.numberOfOpenSites() / (n * n));
+            if (metrics != null) {
+                metrics.addTrial(System.nanoTime() - start);
+                percolation.flushMetrics(metrics);
+            }
+        }
+        mean = stats.mean();
+        stddev = stats.stddev();
+        meanClusters = Double.NaN;
+        meanLargestCluster = Double.NaN;
+        clusterSizeCounts = null;
+    }
+
+    /**
+     * Perform independent trials on an n-by-n grid in parallel
+     *
+     * @param seed    master seed, every trial gets its own stream split from it
+     * @param threads parallelism of the fork/join pool
+     * @throws IllegalArgumentException if n, trials or threads <= 0
+     */
+    public PercolationStats(int n, int trials, long seed, int threads) {
+        this(n, trials, seed, threads, Strategy.REJECTION);
+    }
+
+    /**
+     * Perform independent trials on an n-by-n grid in parallel
+     *
+     * @param seed     master seed, every trial gets its own stream split from it
+     * @param threads  parallelism of the fork/join pool
+     * @param strategy how each trial picks the sites to open
+     * @throws IllegalArgumentException if n, trials or threads <= 0 or strategy is null
+     */
+    public PercolationStats(int n, int trials, long seed, int threads, Strategy strategy) {
+        this(n, trials, new Options().seed(seed).threads(threads).strategy(strategy));
+    }
+
+    /**
+     * Perform up to trials independent trials on an n-wide lattice in parallel.
+     * Trials run in batches, each batch is folded into a RunningStats in trial
+     * order, so memory is bounded by the batch size and the result does not
+     * depend on the number of threads. Every pool thread keeps one
+     * PercolationTrial and resets it between trials, so the steady state
+     * allocates nothing per trial. Union-find engines also report the cluster
+     * statistics at each trial's percolation point. With a checkpoint the
+     * state is saved after every batch, and a run restarted from it gives
+     * exactly the results of an uninterrupted one.
+     *
+     * @throws IllegalArgumentException if n or trials <= 0, options is null,
+     *                                  the lattice is too large or the model
+     *                                  does not support the lattice/strategy,
+     *                                  the histogram has no union-find, or
+     *                                  the checkpoint belongs to another run
+     * @throws java.io.UncheckedIOException if the checkpoint cannot be read or written
+     */
+    public PercolationStats(int n, int trials, Options options) {
+        if (n <= 0 || trials <= 0) {
+            throw new IllegalArgumentException("Invalid n or trials!");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Null options!");
+        }
+        Lattice lattice = options.lattice;
+        Model model = options.model;
+        if (model != Model.SITE
+                && (lattice != Lattice.SQUARE || options.strategy == Strategy.BINARY_SEARCH)) {
+            throw new IllegalArgumentException(model + " needs SQUARE and no BINARY_SEARCH!");
+        }
+        if (model == Model.BOND && n < 2) {
+            throw new IllegalArgumentException("BOND needs n >= 2!");
+        }
+        boolean histogram = options.clusterHistogram;
+        if (histogram && (model == Model.DIRECTED || options.strategy == Strategy.BINARY_SEARCH)) {
+            throw new IllegalArgumentException("Cluster histogram needs a union-find engine!");
+        }
+        int units = model == Model.BOND ? 2 * n * (n - 1) : lattice.sites(n);
+        int sites = model == Model.BOND ? n * n : units;
+        RunningStats stats = new RunningStats();
+        RunningStats clusters = new RunningStats();
+        RunningStats largest = new RunningStats();
+        long[] resumedCounts = histogram ? new long[sites + 1] : null;
+        PercolationCheckpoint checkpoint = null;
+        int done = 0;
+        if (options.checkpoint != null) {
+            checkpoint = new PercolationCheckpoint(options.checkpoint, n, trials, options.seed,
+                    options.strategy.ordinal(), lattice.ordinal(), model.ordinal(),
+                    histogram ? 1 : 0);
+            done = checkpoint.load(stats, clusters, largest, resumedCounts);
+        }
+        SplittableRandom master = new SplittableRandom(options.seed);
+        for (int i = 0; i < done; i++) {
+            master.split();
+        }
+        // a step ends at the next multiple of the reporting batch or of the
+        // checkpoint interval, whichever comes first
+        int step = options.checkpoint != null
+                   ? Math.min(options.batch, options.checkpointEvery) : options.batch;
+        Batch batch = new Batch(Math.min(trials, step));
+        int grain = Math.max(1, batch.streams.length / (options.threads * TASKS_PER_THREAD));
+        Strategy strategy = options.strategy;
+        Queue<PercolationTrial> created = new ConcurrentLinkedQueue<>();
+        ThreadLocal<PercolationTrial> workers = ThreadLocal.withInitial(() -> {
+            PercolationTrial worker = new PercolationTrial(n, strategy, lattice, model, histogram,
+                                                           options.metrics);
+            created.add(worker);
+            return worker;
+        });
+        ForkJoinPool pool = new ForkJoinPool(options.threads);
+        try {
+            // the tolerance is only checked at batch boundaries, so where a run
+            // stops does not depend on the checkpoint interval
+            boolean narrow = done % options.batch == 0 && narrow(stats, options.tolerance);
+            while (done < trials && !narrow) {
+                int size = Math.min(trials, nextMultiple(done, options.batch)) - done;
+                if (checkpoint != null) {
+                    size = Math.min(size, nextMultiple(done, options.checkpointEvery) - done);
+                }
+                for (int i = 0; i < size; i++) {
+                    batch.streams[i] = master.split();
+                }
+                pool.invoke(new TrialTask(workers, units, batch, 0, size, grain));
+                for (int i = 0; i < size; i++) {
+                    stats.add(batch.thresholds[i]);
+                    if (batch.clusters[i] >= 0) {
+                        clusters.add(batch.clusters[i]);
+                        largest.add((double) batch.largest[i] / sites);
+                    }
+                }
+                done += size;
+                if (checkpoint != null
+                        && (done % options.checkpointEvery == 0 || done == trials)) {
+                    checkpoint.save(done, stats, clusters, largest,
+                                    histogram ? sizeCounts(resumedCounts, created) : null);
+                }
+                if (done % options.batch != 0 && done != trials) {
+                    continue;
+                }
+                if (options.reporter != null) {
+                    options.reporter.accept(stats);
+                }
+                narrow = narrow(stats, options.tolerance);
+            }
+        } finally {
+            pool.shutdown();
+        }
+        trial = (int) stats.count();
+        mean = stats.mean();
+        stddev = stats.stddev();
+        meanClusters = clusters.mean();
+        meanLargestCluster = largest.mean();
+        clusterSizeCounts = histogram ? sizeCounts(resumedCounts, created) : null;
+    }
+
+    /**
+     * Check if the 95% confidence interval is within tolerance, never for tolerance 0
+     */
+    private static boolean narrow(RunningStats stats, double tolerance) {
+        return tolerance > 0 && stats.halfWidth() <= tolerance;
+    }
+
+    /**
+     * Smallest multiple of k above done
+     */
+    private static int nextMultiple(int done, int k) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) (done / k + 1) * k);
+    }
+
+    /**
+     * Cluster size histogram of a checkpoint plus the trials run by workers
+     *
+     * @return fresh array, base[s] + the sum of the workers' counts[s]
+     */
+    private static long[] sizeCounts(long[] base, Queue<PercolationTrial> workers) {
+        long[] total = base.clone();
+        for (PercolationTrial worker : workers) {
+            long[] counts = worker.sizeCounts();
+            for (int s = 1; s < total.length; s++) {
+                total[s] += counts[s];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Per-trial inputs and results of one batch, indexed by trial
+     */
+    private static class Batch {
+        private final SplittableRandom[] streams;
+        private final double[] thresholds;
+        private final int[] clusters;
+        private final int[] largest;
+
+        Batch(int size) {
+            streams = new SplittableRandom[size];
+            thresholds = new double[size];
+            clusters = new int[size];
+            largest = new int[size];
+        }
+    }
+
+    /**
+     * Fork/join task running the trials in [lo, hi)
+     */
+    private static class TrialTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ThreadLocal<PercolationTrial> workers;
+        private final int units;
+        private final Batch batch;
+        private final int lo;
+        private final int hi;
+        private final int grain;
+
+        TrialTask(ThreadLocal<PercolationTrial> workers, int units, Batch batch,
+                  int lo, int hi, int grain) {
+            this.workers = workers;
+            this.units = units;
+            this.batch = batch;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= grain) {
+                PercolationTrial worker = workers.get();
+                for (int i = lo; i < hi; i++) {
+                    batch.thresholds[i] = (double) worker.run(batch.streams[i]) / units;
+                    batch.clusters[i] = worker.clusters();
+                    batch.largest[i] = worker.largestCluster();
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new TrialTask(workers, units, batch, lo, mid, grain),
+                      new TrialTask(workers, units, batch, mid, hi, grain));
         }
-        mean = StdStats.mean(counts) / (n * n);
-        stddev = StdStats.stddev(counts) / (n * n);
     }
 
     /**
@@ -63,6 +514,45 @@ public class PercolationStats {
         return stddev;
     }
 
+    /**
+     * Mean number of clusters at the percolation point. Only the Options
+     * constructors (and those taking a seed) collect it, from the union-find
+     * engines; the sequential constructors run Percolation, whose
+     * WeightedQuickUnionUF joins clusters through the pre-connected top and
+     * bottom rows (or sentinel sites), so they leave it NaN.
+     *
+     * @return mean number of clusters, NaN if the engine has no union-find or
+     * the sequential constructors were used
+     */
+    public double meanClusters() {
+        return meanClusters;
+    }
+
+    /**
+     * Mean size of the largest cluster at the percolation point, as a
+     * fraction of the sites. Collected on the same paths as meanClusters().
+     *
+     * @return mean largest cluster fraction, NaN if the engine has no union-find
+     * or the sequential constructors were used
+     */
+    public double meanLargestCluster() {
+        return meanLargestCluster;
+    }
+
+    /**
+     * Number of clusters of every size at the percolation point, summed over
+     * all trials
+     *
+     * @return counts[s] = clusters of s sites, counts[0] unused
+     * @throws UnsupportedOperationException if the histogram was not requested
+     */
+    public long[] clusterSizeCounts() {
+        if (clusterSizeCounts == null) {
+            throw new UnsupportedOperationException("Cluster histogram disabled!");
+        }
+        return clusterSizeCounts.clone();
+    }
+
     /**
      * Low endpoint of 95% confidence interval
      *
@@ -89,11 +579,48 @@ public class PercolationStats {
     public static void main(String[] args) {
         int n = Integer.parseInt(args[0]);
         int trails = Integer.parseInt(args[1]);
-        PercolationStats percolationStats = new PercolationStats(n, trails);
+        PercolationStats percolationStats;
+        PercolationMetrics metrics = PercolationMetrics.ENABLED ? new PercolationMetrics() : null;
+        if (args.length >= 4) {
+            long seed = Long.parseLong(args[2]);
+            int threads = Integer.parseInt(args[3]);
+            Options options = new Options().seed(seed).threads(threads);
+            if (args.length >= 5) {
+                options.strategy(Strategy.valueOf(args[4]));
+            }
+            if (args.length >= 7) {
+                options.lattice(Lattice.valueOf(args[6]));
+            }
+            if (args.length >= 8) {
+                options.model(Model.valueOf(args[7]));
+            }
+            if (args.length >= 9) {
+                options.checkpoint(Paths.get(args[8]), REPORT_EVERY);
+            }
+            if (args.length >= 6 && Double.parseDouble(args[5]) > 0) {
+                options.tolerance(Double.parseDouble(args[5]));
+                options.reportEvery(REPORT_EVERY, stats -> StdOut.printf(
+                        "trials = %d, mean = %.6f, 95%% CI half width = %.6f%n",
+                        stats.count(), stats.mean(), stats.halfWidth()));
+            }
+            if (metrics != null) {
+                options.metrics(metrics);
+            }
+            percolationStats = new PercolationStats(n, trails, options);
+        } else {
+            percolationStats = new PercolationStats(n, trails, metrics);
+        }
         StdOut.println("mean                    = " + percolationStats.mean());
         StdOut.println("stddev                  = " + percolationStats.stddev());
         StdOut.println("95% confidence interval = [" + percolationStats.confidenceLo() +
                 ", " + percolationStats.confidenceHi() + "]");
+        if (!Double.isNaN(percolationStats.meanClusters())) {
+            StdOut.println("clusters at threshold   = " + percolationStats.meanClusters());
+            StdOut.println("largest cluster         = " + percolationStats.meanLargestCluster());
+        }
+        if (metrics != null) {
+            StdOut.print(metrics);
+        }
     }
 
 }
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  PercolationSweep.java
+ * Execution:    java-algs4  PercolationSweep <seed> <threads> <n:trials>...
+ *                   [strategy]
+ * Dependencies: algs4.jar
+ * <p>
+ * Finite-size scaling sweep: the trials of every grid size are cut into
+ * work units and all units run on one fork/join pool, largest grid first,
+ * so the JIT warms up once and no core idles between sizes. As soon as the
+ * last unit of a size finishes, its thresholds are folded in trial order and
+ * a CSV row n,trials,mean,stddev,confidenceLo,confidenceHi is emitted.
+ * Size n draws trial i from the i-th stream split off SplittableRandom(seed),
+ * exactly like PercolationStats, so every row equals the PercolationStats
+ * run with the same n, trials and seed.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+public class PercolationSweep {
+    /** First line of the CSV */
+    public static final String HEADER = "n,trials,mean,stddev,confidenceLo,confidenceHi";
+    private static final int TASKS_PER_THREAD = 8;
+
+    private final RunningStats[] stats;
+
+    /**
+     * Run trials[i] trials on an sizes[i]-by-sizes[i] grid for every i
+     *
+     * @param seed     master seed of every size
+     * @param threads  parallelism of the shared fork/join pool
+     * @param strategy how each trial picks the sites to open
+     * @param csv      receives the header, then one row per size as it finishes
+     * @throws IllegalArgumentException if the arrays are null or differ in
+     *                                  length, a size or trial count or threads
+     *                                  is <= 0, or strategy or csv is null
+     */
+    public PercolationSweep(int[] sizes, int[] trials, long seed, int threads,
+                            PercolationStats.Strategy strategy, Consumer<String> csv) {
+        if (sizes == null || trials == null || sizes.length != trials.length) {
+            throw new IllegalArgumentException("Invalid sizes or trials!");
+        }
+        if (threads <= 0 || strategy == null || csv == null) {
+            throw new IllegalArgumentException("Invalid threads, strategy or csv!");
+        }
+        int m = sizes.length;
+        for (int i = 0; i < m; i++) {
+            if (sizes[i] <= 0 || trials[i] <= 0) {
+                throw new IllegalArgumentException("Invalid n or trials!");
+            }
+        }
+        stats = new RunningStats[m];
+        // a size's thresholds and streams exist from its first unit to its last
+        double[][] thresholds = new double[m][];
+        SplittableRandom[][] streams = new SplittableRandom[m][];
+        boolean[] started = new boolean[m];
+        AtomicIntegerArray remaining = new AtomicIntegerArray(m);
+        List<int[]> units = new ArrayList<>();
+        for (int i : largestFirst(sizes)) {
+            int grain = Math.max(1, trials[i] / (threads * TASKS_PER_THREAD));
+            for (int lo = 0; lo < trials[i]; lo += grain) {
+                units.add(new int[] {i, lo, Math.min(trials[i], lo + grain)});
+                remaining.incrementAndGet(i);
+            }
+        }
+
+        csv.accept(HEADER);
+        AtomicInteger next = new AtomicInteger();
+        Runnable drain = () -> {
+            PercolationTrial worker = null;
+            int workerSize = 0;
+            for (int u = next.getAndIncrement(); u < units.size(); u = next.getAndIncrement()) {
+                int[] unit = units.get(u);
+                int i = unit[0];
+                int n = sizes[i];
+                synchronized (started) {
+                    if (!started[i]) {
+                        started[i] = true;
+                        thresholds[i] = new double[trials[i]];
+                        streams[i] = new SplittableRandom[trials[i]];
+                        SplittableRandom master = new SplittableRandom(seed);
+                        for (int t = 0; t < trials[i]; t++) {
+                            streams[i][t] = master.split();
+                        }
+                    }
+                }
+                if (worker == null || workerSize != n) {
+                    worker = new PercolationTrial(n, strategy);
+                    workerSize = n;
+                }
+                for (int t = unit[1]; t < unit[2]; t++) {
+                    thresholds[i][t] = (double) worker.run(streams[i][t]) / ((long) n * n);
+                    streams[i][t] = null;
+                }
+                if (remaining.decrementAndGet(i) == 0) {
+                    RunningStats size = new RunningStats();
+                    for (double threshold : thresholds[i]) {
+                        size.add(threshold);
+                    }
+                    thresholds[i] = null;
+                    streams[i] = null;
+                    synchronized (stats) {
+                        stats[i] = size;
+                        csv.accept(n + "," + trials[i] + "," + size.mean() + "," + size.stddev()
+                                           + "," + size.confidenceLo() + "," + size.confidenceHi());
+                    }
+                }
+            }
+        };
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                tasks.add(pool.submit(drain));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Indices of sizes, largest size first, ties in input order
+     *
+     * @return permutation of [0, sizes.length)
+     */
+    private static int[] largestFirst(int[] sizes) {
+        int[] order = new int[sizes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = 1; i < order.length; i++) {
+            for (int j = i; j > 0 && sizes[order[j]] > sizes[order[j - 1]]; j--) {
+                int tmp = order[j];
+                order[j] = order[j - 1];
+                order[j - 1] = tmp;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Statistics of the thresholds of the i-th size
+     *
+     * @return a copy of the statistics of sizes[i]
+     * @throws IllegalArgumentException if i is out of range
+     */
+    public RunningStats stats(int i) {
+        if (i < 0 || i >= stats.length) {
+            throw new IllegalArgumentException("Invalid i!");
+        }
+        return new RunningStats(stats[i]);
+    }
+
+    /**
+     * Test client
+     * <p>
+     * Print the CSV of the sweep in Standard output, then check the smallest
+     * size against PercolationStats.
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            StdOut.println("Usage: PercolationSweep <seed> <threads> <n:trials>... [strategy]");
+            return;
+        }
+        long seed = Long.parseLong(args[0]);
+        int threads = Integer.parseInt(args[1]);
+        int m = args.length - 2;
+        PercolationStats.Strategy strategy = PercolationStats.Strategy.REJECTION;
+        if (!args[args.length - 1].contains(":")) {
+            strategy = PercolationStats.Strategy.valueOf(args[args.length - 1]);
+            m--;
+        }
+        if (m == 0) {
+            StdOut.println("Usage: PercolationSweep <seed> <threads> <n:trials>... [strategy]");
+            return;
+        }
+        int[] sizes = new int[m];
+        int[] trials = new int[m];
+        int smallest = 0;
+        for (int i = 0; i < m; i++) {
+            String[] pair = args[i + 2].split(":");
+            sizes[i] = Integer.parseInt(pair[0]);
+            trials[i] = Integer.parseInt(pair[1]);
+            if (sizes[i] < sizes[smallest]) smallest = i;
+        }
+        PercolationSweep sweep = new PercolationSweep(sizes, trials, seed, threads, strategy,
+                                                      StdOut::println);
+        PercolationStats single = new PercolationStats(sizes[smallest], trials[smallest], seed,
+                                                       threads, strategy);
+        assert sweep.stats(smallest).mean() == single.mean()
+                && sweep.stats(smallest).stddev() == single.stddev()
+                : "sweep row should match PercolationStats";
+    }
+}
@@ -0,0 +1,380 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  PercolationTrial.java
+ * Dependencies: algs4.jar
+ * <p>
+ * One worker's reusable state for PercolationStats trials: the engine and
+ * the scratch arrays of the chosen strategy are allocated once, and every
+ * run() leaves them in their initial state again by touching only what the
+ * trial changed, so back-to-back trials allocate nothing.
+ * The square lattice keeps the hand-unrolled FastPercolation and flood fill,
+ * any other Lattice goes through LatticePercolation and the neighbour table.
+ * The BOND and DIRECTED models open bonds / sites of their own engines by
+ * index through the same loops. Engines with a union-find also report the
+ * number of clusters and the largest cluster at the percolation point.
+ * Given a PercolationMetrics, every run() is timed and the engine's
+ * operation counters are flushed into it.
+ ******************************************************************************/
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+class PercolationTrial {
+    private final int n;
+    private final PercolationStats.Strategy strategy;
+    private final Lattice lattice;
+    private final int sites;
+    private FastPercolation percolation;
+    private LatticePercolation general;
+    private BondPercolation bond;
+    private DirectedPercolation directed;
+    private int[] neighbors;
+    private int[] order;
+    private long[] open;
+    private long[] seen;
+    private int[] stack;
+    private final long[] sizeCounts;
+    private int clusters = -1;
+    private int largest = -1;
+    private final PercolationMetrics metrics;
+
+    /**
+     * Allocate the state needed by strategy on an n-by-n square grid
+     */
+    PercolationTrial(int n, PercolationStats.Strategy strategy) {
+        this(n, strategy, Lattice.SQUARE, PercolationStats.Model.SITE, false);
+    }
+
+    /**
+     * Allocate the state needed by strategy for model on an n-wide lattice.
+     * BOND and DIRECTED only exist on the square lattice and do not support
+     * BINARY_SEARCH, PercolationStats checks that.
+     *
+     * @param histogram True to accumulate the cluster sizes of every trial,
+     *                  needs a union-find engine
+     */
+    PercolationTrial(int n, PercolationStats.Strategy strategy, Lattice lattice,
+                     PercolationStats.Model model, boolean histogram) {
+        this(n, strategy, lattice, model, histogram, null);
+    }
+
+    /**
+     * Same as above, reporting the trial times and operation counts to metrics
+     *
+     * @param metrics where to report, null for no reporting
+     */
+    PercolationTrial(int n, PercolationStats.Strategy strategy, Lattice lattice,
+                     PercolationStats.Model model, boolean histogram,
+                     PercolationMetrics metrics) {
+        this.n = n;
+        this.metrics = metrics;
+        this.strategy = strategy;
+        this.lattice = lattice;
+        if (model == PercolationStats.Model.BOND) {
+            bond = new BondPercolation(n);
+            sites = bond.bonds();
+        } else {
+            sites = lattice.sites(n);
+        }
+        if (model == PercolationStats.Model.DIRECTED) {
+            directed = new DirectedPercolation(n);
+        } else if (model == PercolationStats.Model.SITE
+                && strategy != PercolationStats.Strategy.BINARY_SEARCH) {
+            if (lattice == Lattice.SQUARE) {
+                percolation = new FastPercolation(n);
+            } else {
+                general = new LatticePercolation(lattice, n);
+            }
+        }
+        if (strategy != PercolationStats.Strategy.REJECTION) {
+            order = new int[sites];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+        }
+        if (strategy == PercolationStats.Strategy.BINARY_SEARCH) {
+            open = new long[(sites + 63) >>> 6];
+            seen = new long[open.length];
+            stack = new int[sites];
+            neighbors = new int[lattice.maxDegree()];
+        }
+        sizeCounts = histogram ? new long[(bond != null ? n * n : sites) + 1] : null;
+    }
+
+    /**
+     * Number of clusters at the percolation point of the last run()
+     *
+     * @return number of clusters, -1 if the engine has no union-find
+     */
+    int clusters() {
+        return clusters;
+    }
+
+    /**
+     * Largest cluster at the percolation point of the last run()
+     *
+     * @return number of sites of the largest cluster, -1 if the engine has no union-find
+     */
+    int largestCluster() {
+        return largest;
+    }
+
+    /**
+     * Clusters of every size at the percolation point, summed over the runs
+     *
+     * @return sizeCounts[s] = clusters of s sites, null without histogram
+     */
+    long[] sizeCounts() {
+        return sizeCounts;
+    }
+
+    /**
+     * Open random sites until the grid percolates
+     *
+     * @return number of open sites at the percolation point
+     */
+    int run(SplittableRandom random) {
+        if (metrics == null) {
+            return trial(random);
+        }
+        long start = System.nanoTime();
+        int count = trial(random);
+        metrics.addTrial(System.nanoTime() - start);
+        if (percolation != null) {
+            percolation.flushMetrics(metrics);
+        } else if (general != null) {
+            general.flushMetrics(metrics);
+        } else if (bond != null) {
+            bond.flushMetrics(metrics);
+        }
+        return count;
+    }
+
+    private int trial(SplittableRandom random) {
+        if (strategy == PercolationStats.Strategy.BINARY_SEARCH) {
+            return binarySearch(random);
+        }
+        if (percolation == null) {
+            return runGeneral(random);
+        }
+        if (strategy == PercolationStats.Strategy.PERMUTATION) {
+            int k = 0;
+            while (!percolation.percolates()) {
+                int j = k + random.nextInt(order.length - k);
+                int site = order[j];
+                order[j] = order[k];
+                order[k++] = site;
+                percolation.open(site / n + 1, site % n + 1);
+            }
+            restoreOrder(k);
+        } else {
+            while (!percolation.percolates()) {
+                int row = random.nextInt(1, n + 1);
+                int col = random.nextInt(1, n + 1);
+                percolation.open(row, col);
+            }
+        }
+        int count = percolation.numberOfOpenSites();
+        clusters = percolation.numberOfClusters();
+        largest = percolation.largestCluster();
+        if (sizeCounts != null) {
+            percolation.addClusterSizes(sizeCounts);
+        }
+        percolation.reset();
+        return count;
+    }
+
+    /**
+     * Same as run() on the lattice, bond or directed engine, the units to
+     * open (sites or bonds) are drawn by index
+     *
+     * @return number of open units at the percolation point
+     */
+    private int runGeneral(SplittableRandom random) {
+        if (strategy == PercolationStats.Strategy.PERMUTATION) {
+            int k = 0;
+            while (!percolates()) {
+                int j = k + random.nextInt(sites - k);
+                int unit = order[j];
+                order[j] = order[k];
+                order[k++] = unit;
+                open(unit);
+            }
+            restoreOrder(k);
+        } else {
+            while (!percolates()) {
+                open(random.nextInt(sites));
+            }
+        }
+        int count;
+        if (bond != null) {
+            count = bond.numberOfOpenBonds();
+            clusters = bond.numberOfClusters();
+            largest = bond.largestCluster();
+            if (sizeCounts != null) {
+                bond.addClusterSizes(sizeCounts);
+            }
+            bond.reset();
+        } else if (directed != null) {
+            count = directed.numberOfOpenSites();
+            directed.reset();
+        } else {
+            count = general.numberOfOpenSites();
+            clusters = general.numberOfClusters();
+            largest = general.largestCluster();
+            if (sizeCounts != null) {
+                general.addClusterSizes(sizeCounts);
+            }
+            general.reset();
+        }
+        return count;
+    }
+
+    private void open(int unit) {
+        if (bond != null) {
+            bond.open(unit);
+        } else if (directed != null) {
+            directed.open(unit / n + 1, unit % n + 1);
+        } else {
+            general.open(unit);
+        }
+    }
+
+    private boolean percolates() {
+        if (bond != null) {
+            return bond.percolates();
+        } else if (directed != null) {
+            return directed.percolates();
+        }
+        return general.percolates();
+    }
+
+    /**
+     * Put order back to the identity after a lazy shuffle of its first k
+     * positions. Beyond k only the positions of the drawn sites were swapped,
+     * so they are fixed first, before the prefix holding those sites is
+     * overwritten.
+     */
+    private void restoreOrder(int k) {
+        for (int i = 0; i < k; i++) {
+            if (order[i] >= k) {
+                order[order[i]] = order[i];
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            order[i] = i;
+        }
+    }
+
+    /**
+     * Fix a random opening order, then binary-search the smallest prefix of it
+     * that percolates. Each probe moves the open bitmap to the new prefix
+     * length and runs one flood fill from the top row, so the opening order
+     * and the result are the same as for the PERMUTATION strategy.
+     *
+     * @return number of open sites at the percolation point
+     */
+    private int binarySearch(SplittableRandom random) {
+        int total = sites;
+        for (int k = 0; k < total - 1; k++) {
+            int j = k + random.nextInt(total - k);
+            int site = order[j];
+            order[j] = order[k];
+            order[k] = site;
+        }
+        int opened = 0;
+        int lo = 1;
+        int hi = total;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            for (; opened < mid; opened++) {
+                open[order[opened] >>> 6] |= 1L << order[opened];
+            }
+            for (; opened > mid; opened--) {
+                open[order[opened - 1] >>> 6] &= ~(1L << order[opened - 1]);
+            }
+            if (lattice == Lattice.SQUARE ? floodFill() : floodFillLattice()) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        Arrays.fill(open, 0L);
+        for (int i = 0; i < total; i++) {
+            order[i] = i;
+        }
+        return lo;
+    }
+
+    /**
+     * Depth-first flood fill from the open top-row sites of the bitmap
+     *
+     * @return True if an open bottom-row site is reached
+     */
+    private boolean floodFill() {
+        Arrays.fill(seen, 0L);
+        int top = 0;
+        for (int col = 0; col < n; col++) {
+            if ((open[col >>> 6] & (1L << col)) != 0) {
+                seen[col >>> 6] |= 1L << col;
+                stack[top++] = col;
+            }
+        }
+        int bottom = n * n - n;
+        while (top > 0) {
+            int site = stack[--top];
+            if (site >= bottom) {
+                return true;
+            }
+            int col = site % n;
+            if (site >= n) top = visit(top, site - n);
+            top = visit(top, site + n);
+            if (col != 0) top = visit(top, site - 1);
+            if (col != n - 1) top = visit(top, site + 1);
+        }
+        return false;
+    }
+
+    /**
+     * floodFill() for any lattice, neighbours come from the lattice table
+     *
+     * @return True if an open site of the last row or layer is reached
+     */
+    private boolean floodFillLattice() {
+        Arrays.fill(seen, 0L);
+        int face = lattice.face(n);
+        int top = 0;
+        for (int site = 0; site < face; site++) {
+            top = visit(top, site);
+        }
+        int bottom = sites - face;
+        while (top > 0) {
+            int site = stack[--top];
+            if (site >= bottom) {
+                return true;
+            }
+            int degree = lattice.neighbors(site, n, neighbors);
+            for (int i = 0; i < degree; i++) {
+                top = visit(top, neighbors[i]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Push site on the stack if it is open and not seen yet
+     *
+     * @return new stack size
+     */
+    private int visit(int top, int site) {
+        long bit = 1L << site;
+        int word = site >>> 6;
+        if ((open[word] & bit) != 0 && (seen[word] & bit) == 0) {
+            seen[word] |= bit;
+            stack[top++] = site;
+        }
+        return top;
+    }
+}
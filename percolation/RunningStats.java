@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  RunningStats.java
+ * Execution:    java-algs4  RunningStats
+ * Dependencies: algs4.jar
+ * <p>
+ * Streaming mean / sample standard deviation in O(1) memory, Welford's
+ * update for a single value and Chan's pairwise formula to merge two
+ * accumulators (e.g. built by different threads).
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.StdStats;
+
+import java.nio.ByteBuffer;
+
+public class RunningStats {
+    private static final double CONFIDENCE_95 = 1.96;
+
+    private long count = 0;
+    private double mean = 0;
+    private double m2 = 0;
+
+    /**
+     * Creates an empty accumulator
+     */
+    public RunningStats() {
+    }
+
+    /**
+     * Copy of the exact state of other
+     */
+    RunningStats(RunningStats other) {
+        count = other.count;
+        mean = other.mean;
+        m2 = other.m2;
+    }
+
+    /**
+     * Add one sample
+     */
+    public void add(double x) {
+        count++;
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+    }
+
+    /**
+     * Fold all samples of other into this accumulator
+     *
+     * @throws IllegalArgumentException if other is null
+     */
+    public void merge(RunningStats other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Null stats!");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+    }
+
+    /**
+     * Number of samples
+     *
+     * @return number of samples added so far
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Sample mean
+     *
+     * @return sample mean, NaN if empty
+     */
+    public double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * Sample standard deviation
+     *
+     * @return sample standard deviation, NaN if fewer than two samples
+     */
+    public double stddev() {
+        return count < 2 ? Double.NaN : Math.sqrt(m2 / (count - 1));
+    }
+
+    /**
+     * Half width of the 95% confidence interval of the mean
+     *
+     * @return half width, NaN if fewer than two samples
+     */
+    public double halfWidth() {
+        return CONFIDENCE_95 * stddev() / Math.sqrt(count);
+    }
+
+    /**
+     * Low endpoint of 95% confidence interval
+     *
+     * @return Low endpoint
+     */
+    public double confidenceLo() {
+        return mean() - halfWidth();
+    }
+
+    /**
+     * High endpoint of 95% confidence interval
+     *
+     * @return High endpoint
+     */
+    public double confidenceHi() {
+        return mean() + halfWidth();
+    }
+
+    /**
+     * Append the exact state (count, mean, m2) to buffer
+     */
+    void writeTo(ByteBuffer buffer) {
+        buffer.putLong(count).putDouble(mean).putDouble(m2);
+    }
+
+    /**
+     * Replace the state by the one written by writeTo()
+     */
+    void readFrom(ByteBuffer buffer) {
+        count = buffer.getLong();
+        mean = buffer.getDouble();
+        m2 = buffer.getDouble();
+    }
+
+    /**
+     * Simple test client <p>
+     * Compare against StdStats and check that merging equals adding.
+     */
+    public static void main(String[] args) {
+        double[] samples = new double[1000];
+        RunningStats all = new RunningStats();
+        RunningStats left = new RunningStats();
+        RunningStats right = new RunningStats();
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = StdRandom.uniformDouble(0.5, 0.7);
+            all.add(samples[i]);
+            if (i < 300) left.add(samples[i]);
+            else right.add(samples[i]);
+        }
+        left.merge(right);
+        assert Math.abs(all.mean() - StdStats.mean(samples)) < 1e-12 : "mean mismatch";
+        assert Math.abs(all.stddev() - StdStats.stddev(samples)) < 1e-12 : "stddev mismatch";
+        assert Math.abs(left.mean() - all.mean()) < 1e-12 : "merged mean mismatch";
+        assert Math.abs(left.stddev() - all.stddev()) < 1e-12 : "merged stddev mismatch";
+        ByteBuffer buffer = ByteBuffer.allocate(24);
+        all.writeTo(buffer);
+        buffer.flip();
+        RunningStats copy = new RunningStats();
+        copy.readFrom(buffer);
+        assert copy.mean() == all.mean() && copy.stddev() == all.stddev() : "round trip mismatch";
+        StdOut.println("mean = " + all.mean() + ", stddev = " + all.stddev());
+    }
+}
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Compilation:  javac-algs4  SiteUnionFind.java
+ * Dependencies: algs4.jar
+ * <p>
+ * Union-find core shared by FastPercolation and LatticePercolation. Plain
+ * int[] parent/size arrays with path halving, plus one state byte per site:
+ * OPEN, and for roots whether the component touches the TOP and/or the
+ * BOTTOM boundary. The grid classes decide which sites are neighbours and
+ * which ones lie on a boundary. Opened sites are journaled for reset().
+ * The number of clusters and the largest cluster size are kept up to date
+ * on every open/union; optionally so is a histogram of cluster sizes.
+ * With PercolationMetrics.ENABLED the opens, unions and finds are counted
+ * in plain fields until flushMetrics().
+ ******************************************************************************/
+
+import java.util.Arrays;
+
+class SiteUnionFind {
+    static final byte OPEN = 1;
+    static final byte TOP = 2;
+    static final byte BOTTOM = 4;
+    private static final int INITIAL_JOURNAL = 16;
+
+    private final int[] parent;
+    private final int[] size;
+    private final byte[] state;
+    private int[] opened = new int[INITIAL_JOURNAL];
+    private final int[] histogram;
+    private int count = 0;
+    private int clusters = 0;
+    private int largest = 0;
+    private boolean percolates = false;
+    private long opens = 0;
+    private long unions = 0;
+    private long finds = 0;
+    private final long[] paths = PercolationMetrics.ENABLED
+            ? new long[PercolationMetrics.MAX_PATH + 1] : null;
+
+    /**
+     * Creates sites isolated blocked sites
+     *
+     * @param histogram True to also keep the number of clusters of every size
+     */
+    SiteUnionFind(int sites, boolean histogram) {
+        this.histogram = histogram ? new int[sites + 1] : null;
+        parent = new int[sites];
+        size = new int[sites];
+        state = new byte[sites];
+        for (int i = 0; i < sites; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    boolean isOpen(int site) {
+        return state[site] != 0;
+    }
+
+    /**
+     * Mark a blocked site open, flags tells which boundaries it lies on.
+     * The caller then unions it with its open neighbours and calls settle().
+     */
+    void open(int site, byte flags) {
+        if (PercolationMetrics.ENABLED) {
+            opens++;
+        }
+        state[site] = (byte) (OPEN | flags);
+        if (count == opened.length) {
+            opened = Arrays.copyOf(opened, Math.min(2 * count, parent.length));
+        }
+        opened[count++] = site;
+        clusters++;
+        if (histogram != null) {
+            histogram[1]++;
+        }
+        if (largest == 0) {
+            largest = 1;
+        }
+    }
+
+    /**
+     * Record whether the component of the just opened site connects both boundaries
+     */
+    void settle(int site) {
+        if ((state[find(site)] & (TOP | BOTTOM)) == (TOP | BOTTOM)) {
+            percolates = true;
+        }
+    }
+
+    /**
+     * Check if an open site is connected to the top boundary
+     *
+     * @return True if site is full
+     */
+    boolean isFull(int site) {
+        return (state[find(site)] & TOP) != 0;
+    }
+
+    boolean percolates() {
+        return percolates;
+    }
+
+    int count() {
+        return count;
+    }
+
+    int clusters() {
+        return clusters;
+    }
+
+    int largestCluster() {
+        return largest;
+    }
+
+    /**
+     * Number of clusters with exactly size open sites
+     *
+     * @throws UnsupportedOperationException if the histogram is not kept
+     * @throws IllegalArgumentException      if size is out of range
+     */
+    int clustersOfSize(int size) {
+        if (histogram == null) {
+            throw new UnsupportedOperationException("Cluster histogram disabled!");
+        }
+        if (size < 1 || size >= histogram.length) {
+            throw new IllegalArgumentException("Invalid size!");
+        }
+        return histogram[size];
+    }
+
+    /**
+     * Add one to sizeCounts[s] for every current cluster of s sites. Only the
+     * roots among the opened sites are visited, no full grid scan.
+     */
+    void addClusterSizes(long[] sizeCounts) {
+        for (int i = 0; i < count; i++) {
+            int site = opened[i];
+            if (parent[site] == site) {
+                sizeCounts[size[site]]++;
+            }
+        }
+    }
+
+    /**
+     * Block every site again, touching only the sites opened since the last reset
+     */
+    void reset() {
+        if (histogram != null) {
+            for (int i = 0; i < count; i++) {
+                int site = opened[i];
+                if (parent[site] == site) {
+                    histogram[size[site]]--;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            int site = opened[i];
+            parent[site] = site;
+            size[site] = 1;
+            state[site] = 0;
+        }
+        count = 0;
+        clusters = 0;
+        largest = 0;
+        percolates = false;
+    }
+
+    /**
+     * Root of site p, halving the path on the way up
+     *
+     * @return root index
+     */
+    int find(int p) {
+        if (PercolationMetrics.ENABLED) {
+            return countedFind(p);
+        }
+        while (p != parent[p]) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+        }
+        return p;
+    }
+
+    /**
+     * find() that counts the call and samples its number of halving steps
+     *
+     * @return root index
+     */
+    private int countedFind(int p) {
+        int length = 0;
+        while (p != parent[p]) {
+            parent[p] = parent[parent[p]];
+            p = parent[p];
+            length++;
+        }
+        if ((finds++ & PercolationMetrics.SAMPLE_MASK) == 0) {
+            paths[Math.min(length, PercolationMetrics.MAX_PATH)]++;
+        }
+        return p;
+    }
+
+    /**
+     * Add the operation counters to metrics and start counting from zero
+     */
+    void flushMetrics(PercolationMetrics metrics) {
+        metrics.add(opens, unions, finds, paths);
+        opens = 0;
+        unions = 0;
+        finds = 0;
+        if (paths != null) {
+            Arrays.fill(paths, 0);
+        }
+    }
+
+    /**
+     * Weighted union of the components of p and q, the surviving root
+     * inherits the TOP/BOTTOM flags of both
+     */
+    void union(int p, int q) {
+        if (PercolationMetrics.ENABLED) {
+            unions++;
+        }
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) {
+            return;
+        }
+        if (size[rootP] < size[rootQ]) {
+            int tmp = rootP;
+            rootP = rootQ;
+            rootQ = tmp;
+        }
+        if (histogram != null) {
+            histogram[size[rootP]]--;
+            histogram[size[rootQ]]--;
+            histogram[size[rootP] + size[rootQ]]++;
+        }
+        clusters--;
+        parent[rootQ] = rootP;
+        size[rootP] += size[rootQ];
+        state[rootP] |= state[rootQ];
+        if (size[rootP] > largest) {
+            largest = size[rootP];
+        }
+    }
+}
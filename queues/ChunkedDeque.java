@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Deque, use a doubly linked list of fixed-size array blocks (an unrolled
+ * linked list). Growing or shrinking by one block links or unlinks it, so
+ * no operation ever copies the items and the worst case of add/remove is
+ * one block allocation instead of a full array copy. One emptied block is
+ * kept as a spare, so a deque oscillating across a block boundary does not
+ * allocate on every crossing.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class ChunkedDeque<Item> implements Iterable<Item> {
+    private static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private final int blockSize;
+    private Block<Item> head;
+    private Block<Item> tail;
+    private Block<Item> spare;
+    // head.items[headIndex] is the first item, tail.items[tailIndex - 1] the last
+    private int headIndex;
+    private int tailIndex;
+    private int size;
+
+    private static class Block<Item> {
+        final Item[] items;
+        Block<Item> prev;
+        Block<Item> next;
+
+        Block(int blockSize) {
+            items = (Item[]) new Object[blockSize];
+        }
+    }
+
+    public ChunkedDeque() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Deque of blocks holding blockSize items each
+     *
+     * @throws IllegalArgumentException if blockSize < 2
+     */
+    public ChunkedDeque(int blockSize) {
+        if (blockSize < 2) {
+            throw new IllegalArgumentException("Invalid blockSize!");
+        }
+        this.blockSize = blockSize;
+        head = new Block<>(blockSize);
+        tail = head;
+        recentre();
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Start the single block of an empty deque in its middle, so both ends
+     * have room before a new block is needed
+     */
+    private void recentre() {
+        headIndex = blockSize / 2;
+        tailIndex = headIndex;
+    }
+
+    private Block<Item> obtain() {
+        if (spare == null) {
+            return new Block<>(blockSize);
+        }
+        Block<Item> block = spare;
+        spare = null;
+        return block;
+    }
+
+    /**
+     * Keep an unlinked block for reuse, its slots are all null already
+     */
+    private void release(Block<Item> block) {
+        block.prev = null;
+        block.next = null;
+        spare = block;
+    }
+
+    public void addFirst(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Null item!");
+        }
+        if (headIndex == 0) {
+            Block<Item> block = obtain();
+            block.next = head;
+            head.prev = block;
+            head = block;
+            headIndex = blockSize;
+        }
+        head.items[--headIndex] = item;
+        size++;
+    }
+
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Null item!");
+        }
+        if (tailIndex == blockSize) {
+            Block<Item> block = obtain();
+            block.prev = tail;
+            tail.next = block;
+            tail = block;
+            tailIndex = 0;
+        }
+        tail.items[tailIndex++] = item;
+        size++;
+    }
+
+    public Item removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Item removed = head.items[headIndex];
+        head.items[headIndex++] = null;
+        size--;
+        if (size == 0) {
+            recentre();
+        } else if (headIndex == blockSize) {
+            Block<Item> emptied = head;
+            head = head.next;
+            head.prev = null;
+            headIndex = 0;
+            release(emptied);
+        }
+        return removed;
+    }
+
+    public Item removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Item removed = tail.items[--tailIndex];
+        tail.items[tailIndex] = null;
+        size--;
+        if (size == 0) {
+            recentre();
+        } else if (tailIndex == 0) {
+            Block<Item> emptied = tail;
+            tail = tail.prev;
+            tail.next = null;
+            tailIndex = blockSize;
+            release(emptied);
+        }
+        return removed;
+    }
+
+    public Iterator<Item> iterator() {
+        return new BlockIterator();
+    }
+
+    private class BlockIterator implements Iterator<Item> {
+        Block<Item> block = head;
+        int index = headIndex;
+        int remaining = size;
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public Item next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (index == blockSize) {
+                block = block.next;
+                index = 0;
+            }
+            remaining--;
+            return block.items[index++];
+        }
+    }
+
+    public static void main(String[] args) {
+        for (int blockSize : new int[] {2, 3, 16, DEFAULT_BLOCK_SIZE}) {
+            ChunkedDeque<Integer> a = new ChunkedDeque<>(blockSize);
+            ArrayDeque<Integer> expected = new ArrayDeque<>();
+            for (int i = 0; i < 100000; i++) {
+                int op = StdRandom.uniformInt(i < 50000 ? 5 : 4);
+                if (op == 0) {
+                    a.addFirst(i);
+                    expected.addFirst(i);
+                } else if (op == 1 || op == 4) {
+                    a.addLast(i);
+                    expected.addLast(i);
+                } else if (op == 2 && !expected.isEmpty()) {
+                    assert a.removeFirst().equals(expected.removeFirst()) : "removeFirst mismatch";
+                } else if (op == 3 && !expected.isEmpty()) {
+                    assert a.removeLast().equals(expected.removeLast()) : "removeLast mismatch";
+                }
+                assert a.size() == expected.size() : "size mismatch";
+            }
+            Iterator<Integer> items = a.iterator();
+            for (Integer item : expected) {
+                assert items.next().equals(item) : "iterator mismatch";
+            }
+            assert !items.hasNext() : "iterator too long";
+            while (!a.isEmpty()) {
+                assert a.removeLast().equals(expected.removeLast()) : "drain mismatch";
+            }
+            try {
+                a.removeFirst();
+                assert false : "removeFirst on empty should throw";
+            } catch (NoSuchElementException e) {
+                StdOut.println("blockSize " + blockSize + " isEmpty:" + a.isEmpty()
+                                       + " size: " + a.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Deque that many threads may add to and remove from at both ends without
+ * a lock. It is backed by java.util.concurrent.ConcurrentLinkedDeque, a
+ * lock-free doubly linked list whose operations are linearizable, so no
+ * monitor is ever held. removeFirst/removeLast keep the Deque contract and
+ * throw on empty; since isEmpty() followed by remove is a race between
+ * threads, pollFirst/pollLast return null instead. size() walks the list,
+ * it is O(n) and only a snapshot. Iteration is weakly consistent.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class ConcurrentDeque<Item> implements Iterable<Item> {
+    private final ConcurrentLinkedDeque<Item> dataList = new ConcurrentLinkedDeque<>();
+
+    public boolean isEmpty() {
+        return dataList.isEmpty();
+    }
+
+    public int size() {
+        return dataList.size();
+    }
+
+    public void addFirst(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Null item!");
+        }
+        dataList.addFirst(item);
+    }
+
+    public void addLast(Item item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Null item!");
+        }
+        dataList.addLast(item);
+    }
+
+    public Item removeFirst() {
+        return dataList.removeFirst();
+    }
+
+    public Item removeLast() {
+        return dataList.removeLast();
+    }
+
+    /**
+     * Remove the first item if there is one
+     *
+     * @return the first item, null if empty
+     */
+    public Item pollFirst() {
+        return dataList.pollFirst();
+    }
+
+    /**
+     * Remove the last item if there is one
+     *
+     * @return the last item, null if empty
+     */
+    public Item pollLast() {
+        return dataList.pollLast();
+    }
+
+    public Iterator<Item> iterator() {
+        Iterator<Item> items = dataList.iterator();
+        return new Iterator<Item>() {
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            public Item next() {
+                return items.next();
+            }
+        };
+    }
+
+    /**
+     * Stress test: producers add their numbers in increasing order at the
+     * back (or front), consumers take from the front (or back). Every item
+     * must come out exactly once, and a consumer must see the numbers of
+     * each producer in increasing order, as a linearizable FIFO requires.
+     */
+    private static void stress(int producers, int consumers, int perProducer, boolean fromFront)
+            throws InterruptedException {
+        ConcurrentDeque<Integer> deque = new ConcurrentDeque<>();
+        AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        AtomicBoolean ordered = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch produced = new CountDownLatch(producers);
+        Thread[] threads = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads[p] = new Thread(() -> {
+                awaitQuietly(start);
+                for (int i = 0; i < perProducer; i++) {
+                    if (fromFront) deque.addFirst(base + i);
+                    else deque.addLast(base + i);
+                }
+                produced.countDown();
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            threads[producers + c] = new Thread(() -> {
+                int[] last = new int[producers];
+                Arrays.fill(last, -1);
+                awaitQuietly(start);
+                while (true) {
+                    Integer item = fromFront ? deque.pollLast() : deque.pollFirst();
+                    if (item == null) {
+                        if (produced.getCount() == 0 && deque.isEmpty()) return;
+                        continue;
+                    }
+                    seen.incrementAndGet(item);
+                    int producer = item / perProducer;
+                    if (item <= last[producer]) ordered.set(false);
+                    last[producer] = item;
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < seen.length(); i++) {
+            assert seen.get(i) == 1 : "item " + i + " removed " + seen.get(i) + " times";
+        }
+        assert ordered.get() : "a producer's items came out of order";
+        assert deque.isEmpty() && deque.size() == 0 : "deque should be drained";
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConcurrentDeque<Integer> a = new ConcurrentDeque<>();
+        a.addFirst(2);
+        a.addFirst(1);
+        a.addLast(3);
+        assert a.size() == 3 && a.removeFirst() == 1 && a.removeLast() == 3 : "ends mismatch";
+        assert a.pollLast() == 2 && a.pollFirst() == null : "poll on empty should return null";
+        try {
+            a.removeFirst();
+            assert false : "removeFirst on empty should throw";
+        } catch (NoSuchElementException e) {
+            StdOut.println("isEmpty:" + a.isEmpty() + " size: " + a.size());
+        }
+        for (int threads : new int[] {2, 4, 8}) {
+            stress(threads, threads, 100000, false);
+            stress(threads, threads, 100000, true);
+            StdOut.println(threads + " producers / " + threads + " consumers ok");
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Throughput of ConcurrentDeque against a Deque guarded by synchronized,
+ * from 1 to 64 threads. No JMH here, every thread runs the same loop for a
+ * fixed time: addLast then removeFirst, or addFirst then removeLast on odd
+ * threads, so both ends are contended. A warm-up run at 8 threads
+ * comes first. Usage: ConcurrentDequeBenchmark [millis]
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ConcurrentDequeBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int PREFILL = 1024;
+
+    private interface Ops {
+        void add(boolean front, Integer item);
+
+        Integer remove(boolean front);
+    }
+
+    private static Ops locked() {
+        Deque<Integer> deque = new Deque<>();
+        return new Ops() {
+            public void add(boolean front, Integer item) {
+                synchronized (deque) {
+                    if (front) deque.addFirst(item);
+                    else deque.addLast(item);
+                }
+            }
+
+            public Integer remove(boolean front) {
+                synchronized (deque) {
+                    if (deque.isEmpty()) return null;
+                    return front ? deque.removeLast() : deque.removeFirst();
+                }
+            }
+        };
+    }
+
+    private static Ops lockFree() {
+        ConcurrentDeque<Integer> deque = new ConcurrentDeque<>();
+        return new Ops() {
+            public void add(boolean front, Integer item) {
+                if (front) deque.addFirst(item);
+                else deque.addLast(item);
+            }
+
+            public Integer remove(boolean front) {
+                return front ? deque.pollLast() : deque.pollFirst();
+            }
+        };
+    }
+
+    /**
+     * Run threads threads on ops for millis milliseconds
+     *
+     * @return million operations per second
+     */
+    private static double throughput(Ops ops, int threads, long millis)
+            throws InterruptedException {
+        for (int i = 0; i < PREFILL; i++) {
+            ops.add(false, i & 127);
+        }
+        LongAdder count = new LongAdder();
+        AtomicBoolean stop = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            boolean front = (t & 1) == 1;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long done = 0;
+                while (!stop.get()) {
+                    for (int i = 0; i < 64; i++) {
+                        ops.add(front, i);
+                        ops.remove(front);
+                    }
+                    done += 128;
+                }
+                count.add(done);
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        Thread.sleep(millis);
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return count.sum() / ((System.nanoTime() - begin) / 1e3);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        throughput(locked(), 8, millis);
+        throughput(lockFree(), 8, millis);
+        StdOut.printf("threads  synchronized Deque  ConcurrentDeque   (Mops/s)%n");
+        for (int threads : THREADS) {
+            double locked = throughput(locked(), threads, millis);
+            double lockFree = throughput(lockFree(), threads, millis);
+            StdOut.printf("%7d  %18.2f  %15.2f   (x%.2f)%n", threads, locked, lockFree,
+                          lockFree / locked);
+        }
+    }
+}
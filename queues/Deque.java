@@ -3,107 +3,122 @@
  * All rights reserved.
  * <p>
  * Deque, use circle array implementation.
+ * The capacity is a power of two, so indices wrap with a bit mask.
+ * Iterators fail fast: every add and remove bumps modCount, and an iterator,
+ * forEach or spliterator that sees it change throws
+ * ConcurrentModificationException. forEach and the spliterator walk the at
+ * most two contiguous segments of the ring directly. snapshotIterator()
+ * copies the items first and never fails.
  ******************************************************************************/
 
 import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class Deque<Item> implements Iterable<Item> {
+    private static final int DEFAULT_MIN_CAPACITY = 8;
+
     private Item[] dataList;
+    private int mask;
     private int first;
-    private int last;
+    private int size;
+    private int modCount;
+    private final int minCapacity;
 
     public Deque() {
-        dataList = (Item[]) new Object[1];
-        first = -1;
-        last = 0;
+        this(DEFAULT_MIN_CAPACITY);
+    }
+
+    /**
+     * Deque whose array never shrinks below minCapacity (rounded up to a power of two)
+     *
+     * @throws IllegalArgumentException if minCapacity <= 0 or above 2^30
+     */
+    public Deque(int minCapacity) {
+        if (minCapacity <= 0 || minCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid minCapacity!");
+        }
+        this.minCapacity = minCapacity == 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+        dataList = (Item[]) new Object[this.minCapacity];
+        mask = this.minCapacity - 1;
+        first = 0;
+        size = 0;
     }
 
     public boolean isEmpty() {
-        return first == -1;
+        return size == 0;
     }
 
     public int size() {
-        if (last < first) {
-            return dataList.length - first + last;
-        } else if (first == -1) {
-            return 0;
-        } else if (last > first) {
-            return last - first;
-        } else {
-            return dataList.length;
-        }
+        return size;
     }
 
-    private void resizeAdd() {
-        Item[] tmp = (Item[]) new Object[dataList.length * 2];
-        if (last >= 0) System.arraycopy(dataList, 0, tmp, 0, last);
-        for (int i = dataList.length - 1; i >= first; i--) {
-            tmp[dataList.length + i] = dataList[i];
-        }
-        first = first + dataList.length;
+    /**
+     * Move the items to a new array of the given power of two capacity, front at slot 0
+     */
+    private void resize(int capacity) {
+        Item[] tmp = (Item[]) new Object[capacity];
+        int head = Math.min(size, dataList.length - first);
+        System.arraycopy(dataList, first, tmp, 0, head);
+        System.arraycopy(dataList, 0, tmp, head, size - head);
         dataList = tmp;
+        mask = capacity - 1;
+        first = 0;
     }
 
     public void addFirst(Item item) {
         if (item == null) {
             throw new IllegalArgumentException("Null item!");
         }
-        if (first == -1) {
-            dataList[++first] = item;
-            return;
-        }
-        if (first == last) {
-            resizeAdd();
-        }
-        if (first == 0) {
-            first = dataList.length - 1;
-            dataList[first] = item;
-        } else {
-            dataList[--first] = item;
+        if (size == dataList.length) {
+            resize(dataList.length * 2);
         }
+        first = (first - 1) & mask;
+        dataList[first] = item;
+        size++;
+        modCount++;
     }
 
     public void addLast(Item item) {
         if (item == null) {
             throw new IllegalArgumentException("Null item!");
         }
-        if (first == -1) {
-            dataList[++first] = item;
-            return;
-        }
-        if (first == last) {
-            resizeAdd();
+        if (size == dataList.length) {
+            resize(dataList.length * 2);
         }
-        if (last == dataList.length - 1) {
-            dataList[last] = item;
-            last = 0;
-        } else {
-            dataList[last++] = item;
-        }
-
+        dataList[(first + size) & mask] = item;
+        size++;
+        modCount++;
     }
 
+    /**
+     * Halve the array while it is less than a quarter full, never below
+     * minCapacity; a bulk removal may halve it several times in one resize.
+     * After a shrink the array is less than half full, so a workload
+     * oscillating around one size (or around empty) does not resize back
+     * and forth.
+     */
     private void resizeRemove() {
-        Item[] tmp = (Item[]) new Object[dataList.length / 2];
-        if (first > last) {
-            if (last >= 0) System.arraycopy(dataList, 0, tmp, 0, last);
-            int j = tmp.length - 1;
-            for (int i = dataList.length - 1; i >= first; i--) {
-                tmp[j--] = dataList[i];
-            }
-            first = j + 1;
-        } else {
-            int j = 0;
-            for (int i = first; i < last; i++) {
-                tmp[j++] = dataList[i];
-            }
-            first = 0;
-            last = j;
+        int capacity = dataList.length;
+        while (size < capacity / 4 && capacity > minCapacity) {
+            capacity /= 2;
+        }
+        if (capacity != dataList.length) {
+            resize(capacity);
         }
-        dataList = tmp;
     }
 
     public Item removeFirst() {
@@ -112,18 +127,10 @@ public class Deque<Item> implements Iterable<Item> {
         }
         Item removed = dataList[first];
         dataList[first] = null;
-        if (first == dataList.length - 1) {
-            first = 0;
-        } else {
-            first++;
-        }
-        if (first == last) {
-            first = -1;
-            last = 0;
-            dataList = (Item[]) new Object[1];
-        } else if (size() < dataList.length / 4) {
-            resizeRemove();
-        }
+        first = (first + 1) & mask;
+        size--;
+        modCount++;
+        resizeRemove();
         return removed;
     }
 
@@ -131,35 +138,237 @@ public class Deque<Item> implements Iterable<Item> {
         if (isEmpty()) {
             throw new NoSuchElementException();
         }
-        Item removed;
-        if (last == 0) {
-            removed = dataList[dataList.length - 1];
-            dataList[dataList.length - 1] = null;
-            last = dataList.length - 1;
-        } else {
-            removed = dataList[--last];
-            dataList[last] = null;
-        }
-        if (first == last) {
-            first = -1;
-            last = 0;
-            dataList = (Item[]) new Object[1];
-        } else if (size() < dataList.length / 4) {
-            resizeRemove();
-        }
+        int last = (first + size - 1) & mask;
+        Item removed = dataList[last];
+        dataList[last] = null;
+        size--;
+        modCount++;
+        resizeRemove();
         return removed;
     }
 
+    /**
+     * Grow the array once so that capacity items fit without resizing
+     *
+     * @throws IllegalArgumentException if capacity is above 2^30
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity!");
+        }
+        if (capacity > dataList.length) {
+            resize(Integer.highestOneBit(capacity - 1) << 1);
+        }
+    }
+
+    /**
+     * Add items[from, to) at the end, in order, with at most two array copies
+     *
+     * @throws IllegalArgumentException if the range is invalid or an item is
+     *                                  null, then nothing is added
+     */
+    public void addAll(Item[] items, int from, int to) {
+        if (items == null || from < 0 || to > items.length || from > to) {
+            throw new IllegalArgumentException("Invalid range!");
+        }
+        for (int i = from; i < to; i++) {
+            if (items[i] == null) {
+                throw new IllegalArgumentException("Null item!");
+            }
+        }
+        int count = to - from;
+        ensureCapacity(size + count);
+        int last = (first + size) & mask;
+        int tail = Math.min(count, dataList.length - last);
+        System.arraycopy(items, from, dataList, last, tail);
+        System.arraycopy(items, from + tail, dataList, 0, count - tail);
+        size += count;
+        modCount++;
+    }
+
+    /**
+     * Add all items at the end, in order
+     *
+     * @throws IllegalArgumentException if items is null or holds a null
+     */
+    public void addAll(Item[] items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Null items!");
+        }
+        addAll(items, 0, items.length);
+    }
+
+    /**
+     * Add all items at the end, in iteration order
+     *
+     * @throws IllegalArgumentException if items is null or holds a null
+     */
+    public void addAll(Collection<? extends Item> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Null items!");
+        }
+        addAll((Item[]) items.toArray());
+    }
+
+    /**
+     * Remove up to k items from the front into dest[0, k), in order, with at
+     * most two array copies
+     *
+     * @return number of items removed, min(k, size())
+     * @throws IllegalArgumentException if dest is null, k < 0 or k > dest.length
+     */
+    public int drainTo(Item[] dest, int k) {
+        if (dest == null || k < 0 || k > dest.length) {
+            throw new IllegalArgumentException("Invalid dest or k!");
+        }
+        int count = Math.min(k, size);
+        int head = Math.min(count, dataList.length - first);
+        System.arraycopy(dataList, first, dest, 0, head);
+        System.arraycopy(dataList, 0, dest, head, count - head);
+        Arrays.fill(dataList, first, first + head, null);
+        Arrays.fill(dataList, 0, count - head, null);
+        first = (first + count) & mask;
+        size -= count;
+        modCount++;
+        resizeRemove();
+        return count;
+    }
+
     public Iterator<Item> iterator() {
         return new ArrayIterator();
     }
 
+    /**
+     * Iterator over a copy of the items, front to end, unaffected by later
+     * adds and removes. The copy costs O(n) time and memory up front.
+     */
+    public Iterator<Item> snapshotIterator() {
+        Item[] items = (Item[]) new Object[size];
+        int head = Math.min(size, dataList.length - first);
+        System.arraycopy(dataList, first, items, 0, head);
+        System.arraycopy(dataList, 0, items, head, size - head);
+        return Arrays.asList(items).iterator();
+    }
+
+    /**
+     * Apply action to every item, front to end, without an iterator
+     *
+     * @throws NullPointerException            if action is null
+     * @throws ConcurrentModificationException if action modifies the deque
+     */
+    @Override
+    public void forEach(Consumer<? super Item> action) {
+        Objects.requireNonNull(action);
+        int expectedModCount = modCount;
+        Item[] items = dataList;
+        int head = Math.min(size, items.length - first);
+        int tail = size - head;
+        // checked before every item, so a modified deque never feeds the action stale slots
+        for (int i = first, end = first + head; i < end && modCount == expectedModCount; i++) {
+            action.accept(items[i]);
+        }
+        for (int i = 0; i < tail && modCount == expectedModCount; i++) {
+            action.accept(items[i]);
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public Spliterator<Item> spliterator() {
+        return new RingSpliterator(0, -1, 0);
+    }
+
+    /**
+     * Sequential stream of the items, front to end; parallel() splits the ring
+     */
+    public Stream<Item> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Spliterator over the logical positions [index, fence) of the ring. The
+     * first use binds the fence to size, splits halve the range.
+     */
+    private class RingSpliterator implements Spliterator<Item> {
+        private int index;
+        private int fence;
+        private int expectedModCount;
+
+        RingSpliterator(int index, int fence, int expectedModCount) {
+            this.index = index;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int fence() {
+            if (fence < 0) {
+                fence = size;
+                expectedModCount = modCount;
+            }
+            return fence;
+        }
+
+        public Spliterator<Item> trySplit() {
+            int hi = fence();
+            int mid = (index + hi) >>> 1;
+            if (mid == index) {
+                return null;
+            }
+            RingSpliterator prefix = new RingSpliterator(index, mid, expectedModCount);
+            index = mid;
+            return prefix;
+        }
+
+        public boolean tryAdvance(Consumer<? super Item> action) {
+            Objects.requireNonNull(action);
+            int hi = fence();
+            if (index >= hi) {
+                return false;
+            }
+            Item item = dataList[(first + index++) & mask];
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            action.accept(item);
+            return true;
+        }
+
+        public void forEachRemaining(Consumer<? super Item> action) {
+            Objects.requireNonNull(action);
+            int hi = fence();
+            Item[] items = dataList;
+            int from = (first + index) & mask;
+            int count = hi - index;
+            index = hi;
+            int head = Math.min(count, items.length - from);
+            for (int i = from, end = from + head; i < end && modCount == expectedModCount; i++) {
+                action.accept(items[i]);
+            }
+            for (int i = 0, end = count - head; i < end && modCount == expectedModCount; i++) {
+                action.accept(items[i]);
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        public long estimateSize() {
+            return fence() - index;
+        }
+
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL;
+        }
+    }
+
     private class ArrayIterator implements Iterator<Item> {
-        int n = size();
-        int current = first;
+        int current = 0;
+        int expectedModCount = modCount;
 
         public boolean hasNext() {
-            return n > 0;
+            return current < size;
         }
 
         public void remove() {
@@ -167,17 +376,13 @@ public class Deque<Item> implements Iterable<Item> {
         }
 
         public Item next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            n--;
-            if (current != dataList.length - 1) {
-                return dataList[current++];
-            } else {
-                Item next = dataList[current];
-                current = 0;
-                return next;
-            }
+            return dataList[(first + current++) & mask];
         }
     }
 
@@ -247,5 +452,114 @@ public class Deque<Item> implements Iterable<Item> {
         a.addFirst(2);
         StdOut.println("isEmpty:" + a.isEmpty() + " size: " + a.size());
 
+        Deque<Integer> b = new Deque<>(5);
+        ArrayDeque<Integer> expected = new ArrayDeque<>();
+        for (int i = 0; i < 100000; i++) {
+            int op = StdRandom.uniformInt(i < 50000 ? 5 : 4);
+            if (op == 0) {
+                b.addFirst(i);
+                expected.addFirst(i);
+            } else if (op == 1 || op == 4) {
+                b.addLast(i);
+                expected.addLast(i);
+            } else if (op == 2 && !expected.isEmpty()) {
+                assert b.removeFirst().equals(expected.removeFirst()) : "removeFirst mismatch";
+            } else if (op == 3 && !expected.isEmpty()) {
+                assert b.removeLast().equals(expected.removeLast()) : "removeLast mismatch";
+            }
+            assert b.size() == expected.size() : "size mismatch";
+        }
+        Iterator<Integer> items = b.iterator();
+        for (Integer item : expected) {
+            assert items.next().equals(item) : "iterator mismatch";
+        }
+        assert !items.hasNext() : "iterator too long";
+
+        Deque<Integer> c = new Deque<>();
+        ArrayDeque<Integer> bulk = new ArrayDeque<>();
+        Integer[] batch = new Integer[1000];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = i;
+        }
+        for (int round = 0; round < 50; round++) {
+            c.addFirst(-1);
+            c.removeFirst();
+            c.addAll(batch, round, batch.length);
+            bulk.addAll(Arrays.asList(batch).subList(round, batch.length));
+            Integer[] out = new Integer[700];
+            int drained = c.drainTo(out, out.length);
+            assert drained == Math.min(out.length, bulk.size()) : "drainTo count mismatch";
+            for (int i = 0; i < drained; i++) {
+                assert out[i].equals(bulk.removeFirst()) : "drainTo order mismatch";
+            }
+            assert c.size() == bulk.size() : "size mismatch after bulk ops";
+        }
+        c.ensureCapacity(4 * bulk.size());
+        c.addAll(new ArrayDeque<>(bulk));
+        int total = c.size();
+        assert total == 2 * bulk.size() : "addAll(Collection) size mismatch";
+        assert c.drainTo(new Integer[total + 1], total + 1) == total && c.isEmpty()
+                : "drainTo should empty the deque";
+
+        Deque<Integer> d = new Deque<>();
+        for (int i = 0; i < 100000; i++) {
+            d.addLast(i);
+            d.addFirst(-i);
+            d.removeFirst();
+        }
+        long[] sum = new long[1];
+        d.forEach(item -> sum[0] += item);
+        assert sum[0] == 100000L * 99999 / 2 : "forEach sum mismatch";
+        assert d.stream().parallel().mapToLong(Integer::longValue).sum() == sum[0]
+                : "parallel stream sum mismatch";
+        assert d.stream().parallel().collect(Collectors.toList())
+                .equals(IntStream.range(0, 100000).boxed().collect(Collectors.toList()))
+                : "parallel stream order mismatch";
+        Iterator<Integer> stale = d.iterator();
+        stale.next();
+        d.addLast(-1);
+        try {
+            stale.next();
+            assert false : "iterator should fail fast after addLast";
+        } catch (ConcurrentModificationException e) {
+            StdOut.println("isEmpty:" + d.isEmpty() + " size: " + d.size());
+        }
+        Iterator<Integer> snapshot = d.snapshotIterator();
+        d.removeFirst();
+        d.addFirst(-3);
+        assert snapshot.next() == 0 : "snapshot should keep the old front";
+        try {
+            d.forEach(null);
+            assert false : "null action should throw NullPointerException";
+        } catch (NullPointerException e) {
+            StdOut.println("isEmpty:" + d.isEmpty() + " size: " + d.size());
+        }
+        for (boolean viaSpliterator : new boolean[] {false, true}) {
+            Deque<Integer> e = new Deque<>();
+            for (int i = 0; i < 20; i++) {
+                e.addLast(i);
+            }
+            int[] accepted = new int[1];
+            Consumer<Integer> shrink = item -> {
+                assert item != null : "action got a null item";
+                accepted[0]++;
+                e.removeLast();
+            };
+            try {
+                if (viaSpliterator) e.spliterator().forEachRemaining(shrink);
+                else e.forEach(shrink);
+                assert false : "modifying action should fail fast";
+            } catch (ConcurrentModificationException cme) {
+                assert accepted[0] == 1 : "no item should follow the modification";
+            }
+        }
+        try {
+            d.forEach(item -> {
+                if (item == 1) d.addFirst(-2);
+            });
+            assert false : "forEach should fail fast after addFirst";
+        } catch (ConcurrentModificationException e) {
+            StdOut.println("isEmpty:" + d.isEmpty() + " size: " + d.size());
+        }
     }
 }
@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Throughput of the boxed Deque against the primitive deques, no JMH so the
+ * harness is a Stopwatch around warmed-up rounds. Each round fills a deque
+ * with n values from the back, sums them with the iterator and drains it
+ * from the front, which is the buffering pattern of int IDs and double
+ * samples. The second part times Deque<Integer> under three access
+ * patterns that stress the resizing policy: steady state (a queue holding
+ * about 1000 items), bursts (fill n, drain n) and oscillating around empty
+ * (add k, remove k for k = 1..4). The boxed values are small cached
+ * Integers, so only the array engine is measured. The last row moves the
+ * same n ints through an IntDeque in batches of 1024 with addAll/drainTo,
+ * against addLast/removeFirst one at a time. Mops/s counts the operations
+ * each workload performs: add, visit and remove in the first part, add and
+ * remove in the others. Every workload returns sum(added) - sum(removed),
+ * which must be 0.
+ * Usage: DequeBenchmark [n [rounds]]
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.util.PrimitiveIterator;
+
+public class DequeBenchmark {
+    private static final int WARMUP = 5;
+
+    private static long boxedInts(int n) {
+        Deque<Integer> deque = new Deque<>();
+        for (int i = 0; i < n; i++) {
+            deque.addLast(i);
+        }
+        long sum = 0;
+        for (int item : deque) {
+            sum += item;
+        }
+        while (!deque.isEmpty()) {
+            sum -= deque.removeFirst();
+        }
+        return sum;
+    }
+
+    private static long ints(int n) {
+        IntDeque deque = new IntDeque();
+        for (int i = 0; i < n; i++) {
+            deque.addLast(i);
+        }
+        long sum = 0;
+        for (PrimitiveIterator.OfInt items = deque.iterator(); items.hasNext(); ) {
+            sum += items.nextInt();
+        }
+        while (!deque.isEmpty()) {
+            sum -= deque.removeFirst();
+        }
+        return sum;
+    }
+
+    private static long addRemoveInts(int n) {
+        IntDeque deque = new IntDeque();
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            deque.addLast(i);
+            sum += i;
+        }
+        while (!deque.isEmpty()) {
+            sum -= deque.removeFirst();
+        }
+        return sum;
+    }
+
+    private static long bulkInts(int n) {
+        IntDeque deque = new IntDeque();
+        int[] batch = new int[1024];
+        long sum = 0;
+        for (int i = 0; i < n; i += batch.length) {
+            int count = Math.min(batch.length, n - i);
+            for (int j = 0; j < count; j++) {
+                batch[j] = i + j;
+                sum += i + j;
+            }
+            deque.addAll(batch, 0, count);
+        }
+        for (int count = deque.drainTo(batch, batch.length); count > 0;
+             count = deque.drainTo(batch, batch.length)) {
+            for (int j = 0; j < count; j++) {
+                sum -= batch[j];
+            }
+        }
+        return sum;
+    }
+
+    private static long boxedDoubles(int n) {
+        Deque<Double> deque = new Deque<>();
+        for (int i = 0; i < n; i++) {
+            deque.addLast((double) i);
+        }
+        double sum = 0;
+        for (double item : deque) {
+            sum += item;
+        }
+        while (!deque.isEmpty()) {
+            sum -= deque.removeFirst();
+        }
+        return (long) sum;
+    }
+
+    private static long doubles(int n) {
+        DoubleDeque deque = new DoubleDeque();
+        for (int i = 0; i < n; i++) {
+            deque.addLast(i);
+        }
+        double sum = 0;
+        for (PrimitiveIterator.OfDouble items = deque.iterator(); items.hasNext(); ) {
+            sum += items.nextDouble();
+        }
+        while (!deque.isEmpty()) {
+            sum -= deque.removeFirst();
+        }
+        return (long) sum;
+    }
+
+    private static long steady(int n) {
+        Deque<Integer> deque = new Deque<>();
+        for (int i = 0; i < 1000; i++) {
+            deque.addLast(0);
+        }
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            deque.addLast(i & 127);
+            sum += (i & 127) - deque.removeFirst();
+        }
+        while (!deque.isEmpty()) {
+            sum -= deque.removeFirst();
+        }
+        return sum;
+    }
+
+    private static long burst(int n) {
+        Deque<Integer> deque = new Deque<>();
+        long sum = 0;
+        for (int burst = 0; burst < 4; burst++) {
+            for (int i = 0; i < n / 4; i++) {
+                deque.addLast(i & 127);
+                sum += i & 127;
+            }
+            while (!deque.isEmpty()) {
+                sum -= deque.removeLast();
+            }
+        }
+        return sum;
+    }
+
+    private static long oscillate(int n) {
+        Deque<Integer> deque = new Deque<>();
+        long sum = 0;
+        int round = 0;
+        for (int i = 0; i < n; ) {
+            int k = (round++ & 3) + 1;
+            for (int j = 0; j < k; j++) {
+                deque.addLast(j);
+            }
+            for (int j = 0; j < k; j++) {
+                sum += deque.removeFirst() - j;
+            }
+            i += k;
+        }
+        return sum;
+    }
+
+    private interface Workload {
+        long run(int n);
+    }
+
+    /**
+     * Time rounds of the workload after the warm-up rounds
+     *
+     * @param opsPerItem deque operations the workload performs per item of n
+     * @return million deque operations per second
+     */
+    private static double throughput(Workload workload, int n, int rounds, int opsPerItem) {
+        long check = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            check += workload.run(n);
+        }
+        Stopwatch stopwatch = new Stopwatch();
+        for (int i = 0; i < rounds; i++) {
+            check += workload.run(n);
+        }
+        double seconds = stopwatch.elapsedTime();
+        if (check != 0) {
+            throw new IllegalStateException("Deque lost items!");
+        }
+        return (double) opsPerItem * n * rounds / seconds / 1e6;
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        // add + visit + remove per item
+        double boxed = throughput(DequeBenchmark::boxedInts, n, rounds, 3);
+        double primitive = throughput(DequeBenchmark::ints, n, rounds, 3);
+        StdOut.printf("Deque<Integer>  %8.1f Mops/s%n", boxed);
+        StdOut.printf("IntDeque        %8.1f Mops/s  (x%.2f)%n", primitive, primitive / boxed);
+        boxed = throughput(DequeBenchmark::boxedDoubles, n, rounds, 3);
+        primitive = throughput(DequeBenchmark::doubles, n, rounds, 3);
+        StdOut.printf("Deque<Double>   %8.1f Mops/s%n", boxed);
+        StdOut.printf("DoubleDeque     %8.1f Mops/s  (x%.2f)%n", primitive, primitive / boxed);
+        // add + remove per item
+        StdOut.printf("steady state    %8.1f Mops/s%n",
+                      throughput(DequeBenchmark::steady, n, rounds, 2));
+        StdOut.printf("burst           %8.1f Mops/s%n",
+                      throughput(DequeBenchmark::burst, n, rounds, 2));
+        StdOut.printf("oscillate       %8.1f Mops/s%n",
+                      throughput(DequeBenchmark::oscillate, n, rounds, 2));
+        double bulk = throughput(DequeBenchmark::bulkInts, n, rounds, 2);
+        StdOut.printf("IntDeque bulk   %8.1f Mops/s  (x%.2f)%n", bulk,
+                      bulk / throughput(DequeBenchmark::addRemoveInts, n, rounds, 2));
+    }
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Per-operation latency of the array Deque against the block ChunkedDeque.
+ * Every addLast of a fill to n items and every removeFirst of the drain that
+ * follows is timed with System.nanoTime into a log-linear histogram (16
+ * sub-buckets per power of two, so a reported percentile is at most 1/16
+ * above the true one). Averages hide the array doubling, the tail shows it:
+ * p99.9 and max of the Deque fill include the full copies of the array.
+ * nanoTime itself costs some tens of ns, the same floor for both engines.
+ * The items are small cached Integers, so the engines allocate nothing else.
+ * Run with the same -Xmx for both, GC pauses land in the tail of either.
+ * Usage: DequeLatencyBenchmark [n [rounds]]
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+
+public class DequeLatencyBenchmark {
+    private static final int SUB_BUCKETS = 16;
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999, 0.9999};
+
+    private static class Histogram {
+        private final long[] counts = new long[64 * SUB_BUCKETS];
+        private long total = 0;
+        private long max = 0;
+
+        void record(long nanos) {
+            counts[bucket(nanos)]++;
+            total++;
+            max = Math.max(max, nanos);
+        }
+
+        /**
+         * Values below SUB_BUCKETS get a bucket each, larger ones share
+         * SUB_BUCKETS buckets per power of two
+         */
+        private static int bucket(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int) Math.max(0, nanos);
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(nanos) - 4;
+            return (shift + 1) * SUB_BUCKETS + (int) (nanos >>> shift) - SUB_BUCKETS;
+        }
+
+        /**
+         * Largest value of a bucket
+         */
+        private static long upper(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            return ((long) (bucket % SUB_BUCKETS + SUB_BUCKETS + 1) << shift) - 1;
+        }
+
+        /**
+         * Smallest bucket bound that at least a fraction q of the values are below
+         *
+         * @return nanoseconds
+         */
+        long percentile(double q) {
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int b = 0; b < counts.length; b++) {
+                seen += counts[b];
+                if (seen >= rank) {
+                    return Math.min(upper(b), max);
+                }
+            }
+            return max;
+        }
+
+        long max() {
+            return max;
+        }
+    }
+
+    private interface Engine {
+        void addLast(Integer item);
+
+        Integer removeFirst();
+    }
+
+    private static Engine array() {
+        Deque<Integer> deque = new Deque<>();
+        return new Engine() {
+            public void addLast(Integer item) {
+                deque.addLast(item);
+            }
+
+            public Integer removeFirst() {
+                return deque.removeFirst();
+            }
+        };
+    }
+
+    private static Engine chunked() {
+        ChunkedDeque<Integer> deque = new ChunkedDeque<>();
+        return new Engine() {
+            public void addLast(Integer item) {
+                deque.addLast(item);
+            }
+
+            public Integer removeFirst() {
+                return deque.removeFirst();
+            }
+        };
+    }
+
+    /**
+     * Fill a fresh engine with n items and drain it, timing every operation
+     * if the histograms are given
+     */
+    private static void run(Engine engine, int n, Histogram fill, Histogram drain) {
+        long sum = 0;
+        for (int i = 0; i < n; i++) {
+            Integer item = i & 127;
+            long start = System.nanoTime();
+            engine.addLast(item);
+            long elapsed = System.nanoTime() - start;
+            if (fill != null) fill.record(elapsed);
+            sum += item;
+        }
+        for (int i = 0; i < n; i++) {
+            long start = System.nanoTime();
+            Integer item = engine.removeFirst();
+            long elapsed = System.nanoTime() - start;
+            if (drain != null) drain.record(elapsed);
+            sum -= item;
+        }
+        if (sum != 0) {
+            throw new IllegalStateException("Deque lost items!");
+        }
+    }
+
+    private static void report(String name, Histogram histogram) {
+        StdOut.printf("%-14s", name);
+        for (double q : PERCENTILES) {
+            StdOut.printf(" %10d", histogram.percentile(q));
+        }
+        StdOut.printf(" %12d%n", histogram.max());
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        for (int i = 0; i < 3; i++) {
+            run(array(), n / 10, null, null);
+            run(chunked(), n / 10, null, null);
+        }
+        Histogram arrayFill = new Histogram();
+        Histogram arrayDrain = new Histogram();
+        Histogram chunkedFill = new Histogram();
+        Histogram chunkedDrain = new Histogram();
+        for (int i = 0; i < rounds; i++) {
+            run(array(), n, arrayFill, arrayDrain);
+            run(chunked(), n, chunkedFill, chunkedDrain);
+        }
+        StdOut.printf("%-14s %10s %10s %10s %10s %12s  (ns, %d ops x %d rounds)%n", "",
+                      "p50", "p99", "p99.9", "p99.99", "max", n, rounds);
+        report("Deque fill", arrayFill);
+        report("Chunked fill", chunkedFill);
+        report("Deque drain", arrayDrain);
+        report("Chunked drain", chunkedDrain);
+    }
+}
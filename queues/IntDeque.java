@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Deque of primitive int values, same circle array as Deque but the items
+ * are stored unboxed, so add/remove allocate nothing unless the array
+ * resizes. The capacity is a power of two and never below minCapacity.
+ * The iterator is a PrimitiveIterator, use nextInt() to read the values
+ * without boxing.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+public class IntDeque implements Iterable<Integer> {
+    private static final int DEFAULT_MIN_CAPACITY = 8;
+
+    private int[] dataList;
+    private int mask;
+    private int first;
+    private int size;
+    private final int minCapacity;
+
+    public IntDeque() {
+        this(DEFAULT_MIN_CAPACITY);
+    }
+
+    /**
+     * Deque whose array never shrinks below minCapacity (rounded up to a power of two)
+     *
+     * @throws IllegalArgumentException if minCapacity <= 0 or above 2^30
+     */
+    public IntDeque(int minCapacity) {
+        if (minCapacity <= 0 || minCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid minCapacity!");
+        }
+        this.minCapacity = minCapacity == 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+        dataList = new int[this.minCapacity];
+        mask = this.minCapacity - 1;
+        first = 0;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addFirst(int item) {
+        if (size == dataList.length) {
+            resize(dataList.length * 2);
+        }
+        first = (first - 1) & mask;
+        dataList[first] = item;
+        size++;
+    }
+
+    public void addLast(int item) {
+        if (size == dataList.length) {
+            resize(dataList.length * 2);
+        }
+        dataList[(first + size) & mask] = item;
+        size++;
+    }
+
+    public int removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        int removed = dataList[first];
+        first = (first + 1) & mask;
+        size--;
+        shrink();
+        return removed;
+    }
+
+    public int removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        int removed = dataList[(first + size - 1) & mask];
+        size--;
+        shrink();
+        return removed;
+    }
+
+    /**
+     * Halve the array once it is less than a quarter full, never below
+     * minCapacity, see Deque
+     */
+    private void shrink() {
+        int capacity = dataList.length;
+        while (size < capacity / 4 && capacity > minCapacity) {
+            capacity /= 2;
+        }
+        if (capacity != dataList.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Move the items to a new array of the given power of two capacity, front at slot 0
+     */
+    private void resize(int capacity) {
+        int[] tmp = new int[capacity];
+        int head = Math.min(size, dataList.length - first);
+        System.arraycopy(dataList, first, tmp, 0, head);
+        System.arraycopy(dataList, 0, tmp, head, size - head);
+        dataList = tmp;
+        mask = capacity - 1;
+        first = 0;
+    }
+
+    /**
+     * Grow the array once so that capacity items fit without resizing
+     *
+     * @throws IllegalArgumentException if capacity is above 2^30
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity!");
+        }
+        if (capacity > dataList.length) {
+            resize(Integer.highestOneBit(capacity - 1) << 1);
+        }
+    }
+
+    /**
+     * Add items[from, to) at the end, in order, with at most two array copies
+     *
+     * @throws IllegalArgumentException if the range is invalid
+     */
+    public void addAll(int[] items, int from, int to) {
+        if (items == null || from < 0 || to > items.length || from > to) {
+            throw new IllegalArgumentException("Invalid range!");
+        }
+        int count = to - from;
+        ensureCapacity(size + count);
+        int last = (first + size) & mask;
+        int tail = Math.min(count, dataList.length - last);
+        System.arraycopy(items, from, dataList, last, tail);
+        System.arraycopy(items, from + tail, dataList, 0, count - tail);
+        size += count;
+    }
+
+    public void addAll(int[] items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Null items!");
+        }
+        addAll(items, 0, items.length);
+    }
+
+    /**
+     * Remove up to k items from the front into dest[0, k), in order, with at
+     * most two array copies
+     *
+     * @return number of items removed, min(k, size())
+     * @throws IllegalArgumentException if dest is null, k < 0 or k > dest.length
+     */
+    public int drainTo(int[] dest, int k) {
+        if (dest == null || k < 0 || k > dest.length) {
+            throw new IllegalArgumentException("Invalid dest or k!");
+        }
+        int count = Math.min(k, size);
+        int head = Math.min(count, dataList.length - first);
+        System.arraycopy(dataList, first, dest, 0, head);
+        System.arraycopy(dataList, 0, dest, head, count - head);
+        first = (first + count) & mask;
+        size -= count;
+        shrink();
+        return count;
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new ArrayIterator();
+    }
+
+    private class ArrayIterator implements PrimitiveIterator.OfInt {
+        int current = 0;
+
+        public boolean hasNext() {
+            return current < size;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return dataList[(first + current++) & mask];
+        }
+    }
+
+    public static void main(String[] args) {
+        IntDeque a = new IntDeque(5);
+        ArrayDeque<Integer> expected = new ArrayDeque<>();
+        for (int i = 0; i < 100000; i++) {
+            int op = StdRandom.uniformInt(i < 50000 ? 5 : 4);
+            if (op == 0) {
+                a.addFirst(i);
+                expected.addFirst(i);
+            } else if (op == 1 || op == 4) {
+                a.addLast(i);
+                expected.addLast(i);
+            } else if (op == 2 && !expected.isEmpty()) {
+                assert a.removeFirst() == expected.removeFirst() : "removeFirst mismatch";
+            } else if (op == 3 && !expected.isEmpty()) {
+                assert a.removeLast() == expected.removeLast() : "removeLast mismatch";
+            }
+            assert a.size() == expected.size() : "size mismatch";
+        }
+        PrimitiveIterator.OfInt items = a.iterator();
+        for (Integer item : expected) {
+            assert items.nextInt() == item : "iterator mismatch";
+        }
+        assert !items.hasNext() : "iterator too long";
+        int[] batch = new int[1000];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = i;
+        }
+        int[] out = new int[700];
+        for (int round = 0; round < 50; round++) {
+            a.addAll(batch, round, batch.length);
+            for (int i = round; i < batch.length; i++) {
+                expected.addLast(batch[i]);
+            }
+            int drained = a.drainTo(out, out.length);
+            assert drained == Math.min(out.length, expected.size()) : "drainTo count mismatch";
+            for (int i = 0; i < drained; i++) {
+                assert out[i] == expected.removeFirst() : "drainTo order mismatch";
+            }
+            assert a.size() == expected.size() : "size mismatch after bulk ops";
+        }
+        a.ensureCapacity(1 << 16);
+        while (!a.isEmpty()) {
+            a.removeLast();
+        }
+        StdOut.println("isEmpty:" + a.isEmpty() + " size: " + a.size());
+    }
+}
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Deque of primitive long values, same circle array as Deque but the items
+ * are stored unboxed, so add/remove allocate nothing unless the array
+ * resizes. The capacity is a power of two and never below minCapacity.
+ * The iterator is a PrimitiveIterator, use nextLong() to read the values
+ * without boxing.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+public class LongDeque implements Iterable<Long> {
+    private static final int DEFAULT_MIN_CAPACITY = 8;
+
+    private long[] dataList;
+    private int mask;
+    private int first;
+    private int size;
+    private final int minCapacity;
+
+    public LongDeque() {
+        this(DEFAULT_MIN_CAPACITY);
+    }
+
+    /**
+     * Deque whose array never shrinks below minCapacity (rounded up to a power of two)
+     *
+     * @throws IllegalArgumentException if minCapacity <= 0 or above 2^30
+     */
+    public LongDeque(int minCapacity) {
+        if (minCapacity <= 0 || minCapacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid minCapacity!");
+        }
+        this.minCapacity = minCapacity == 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+        dataList = new long[this.minCapacity];
+        mask = this.minCapacity - 1;
+        first = 0;
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void addFirst(long item) {
+        if (size == dataList.length) {
+            resize(dataList.length * 2);
+        }
+        first = (first - 1) & mask;
+        dataList[first] = item;
+        size++;
+    }
+
+    public void addLast(long item) {
+        if (size == dataList.length) {
+            resize(dataList.length * 2);
+        }
+        dataList[(first + size) & mask] = item;
+        size++;
+    }
+
+    public long removeFirst() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        long removed = dataList[first];
+        first = (first + 1) & mask;
+        size--;
+        shrink();
+        return removed;
+    }
+
+    public long removeLast() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        long removed = dataList[(first + size - 1) & mask];
+        size--;
+        shrink();
+        return removed;
+    }
+
+    /**
+     * Halve the array once it is less than a quarter full, never below
+     * minCapacity, see Deque
+     */
+    private void shrink() {
+        int capacity = dataList.length;
+        while (size < capacity / 4 && capacity > minCapacity) {
+            capacity /= 2;
+        }
+        if (capacity != dataList.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Move the items to a new array of the given power of two capacity, front at slot 0
+     */
+    private void resize(int capacity) {
+        long[] tmp = new long[capacity];
+        int head = Math.min(size, dataList.length - first);
+        System.arraycopy(dataList, first, tmp, 0, head);
+        System.arraycopy(dataList, 0, tmp, head, size - head);
+        dataList = tmp;
+        mask = capacity - 1;
+        first = 0;
+    }
+
+    /**
+     * Grow the array once so that capacity items fit without resizing
+     *
+     * @throws IllegalArgumentException if capacity is above 2^30
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity!");
+        }
+        if (capacity > dataList.length) {
+            resize(Integer.highestOneBit(capacity - 1) << 1);
+        }
+    }
+
+    /**
+     * Add items[from, to) at the end, in order, with at most two array copies
+     *
+     * @throws IllegalArgumentException if the range is invalid
+     */
+    public void addAll(long[] items, int from, int to) {
+        if (items == null || from < 0 || to > items.length || from > to) {
+            throw new IllegalArgumentException("Invalid range!");
+        }
+        int count = to - from;
+        ensureCapacity(size + count);
+        int last = (first + size) & mask;
+        int tail = Math.min(count, dataList.length - last);
+        System.arraycopy(items, from, dataList, last, tail);
+        System.arraycopy(items, from + tail, dataList, 0, count - tail);
+        size += count;
+    }
+
+    public void addAll(long[] items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Null items!");
+        }
+        addAll(items, 0, items.length);
+    }
+
+    /**
+     * Remove up to k items from the front into dest[0, k), in order, with at
+     * most two array copies
+     *
+     * @return number of items removed, min(k, size())
+     * @throws IllegalArgumentException if dest is null, k < 0 or k > dest.length
+     */
+    public int drainTo(long[] dest, int k) {
+        if (dest == null || k < 0 || k > dest.length) {
+            throw new IllegalArgumentException("Invalid dest or k!");
+        }
+        int count = Math.min(k, size);
+        int head = Math.min(count, dataList.length - first);
+        System.arraycopy(dataList, first, dest, 0, head);
+        System.arraycopy(dataList, 0, dest, head, count - head);
+        first = (first + count) & mask;
+        size -= count;
+        shrink();
+        return count;
+    }
+
+    public PrimitiveIterator.OfLong iterator() {
+        return new ArrayIterator();
+    }
+
+    private class ArrayIterator implements PrimitiveIterator.OfLong {
+        int current = 0;
+
+        public boolean hasNext() {
+            return current < size;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return dataList[(first + current++) & mask];
+        }
+    }
+
+    public static void main(String[] args) {
+        LongDeque a = new LongDeque(5);
+        ArrayDeque<Long> expected = new ArrayDeque<>();
+        for (int i = 0; i < 100000; i++) {
+            int op = StdRandom.uniformInt(i < 50000 ? 5 : 4);
+            if (op == 0) {
+                a.addFirst((long) i);
+                expected.addFirst((long) i);
+            } else if (op == 1 || op == 4) {
+                a.addLast((long) i);
+                expected.addLast((long) i);
+            } else if (op == 2 && !expected.isEmpty()) {
+                assert a.removeFirst() == expected.removeFirst() : "removeFirst mismatch";
+            } else if (op == 3 && !expected.isEmpty()) {
+                assert a.removeLast() == expected.removeLast() : "removeLast mismatch";
+            }
+            assert a.size() == expected.size() : "size mismatch";
+        }
+        PrimitiveIterator.OfLong items = a.iterator();
+        for (Long item : expected) {
+            assert items.nextLong() == item : "iterator mismatch";
+        }
+        assert !items.hasNext() : "iterator too long";
+        long[] batch = new long[1000];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = (long) i;
+        }
+        long[] out = new long[700];
+        for (int round = 0; round < 50; round++) {
+            a.addAll(batch, round, batch.length);
+            for (int i = round; i < batch.length; i++) {
+                expected.addLast(batch[i]);
+            }
+            int drained = a.drainTo(out, out.length);
+            assert drained == Math.min(out.length, expected.size()) : "drainTo count mismatch";
+            for (int i = 0; i < drained; i++) {
+                assert out[i] == expected.removeFirst() : "drainTo order mismatch";
+            }
+            assert a.size() == expected.size() : "size mismatch after bulk ops";
+        }
+        a.ensureCapacity(1 << 16);
+        while (!a.isEmpty()) {
+            a.removeLast();
+        }
+        StdOut.println("isEmpty:" + a.isEmpty() + " size: " + a.size());
+    }
+}
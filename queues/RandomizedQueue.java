@@ -3,17 +3,31 @@
  * All rights reserved.
  * <p>
  * Randomized queue, random swap the last inserted item.
+ * Iterators fail fast with ConcurrentModificationException once the queue
+ * is modified, instead of indexing a stale permutation. snapshotIterator()
+ * walks a copy of the items in random order instead and never fails.
+ * An iterator does not shuffle an index array up front: it maps its counter
+ * 0, 1, 2, ... through a keyed Feistel network, a bijection on [0, 4^h) with
+ * 4^h the smallest power of four >= size, and walks the cycle until the
+ * value falls in [0, size), fewer than four steps in expectation. So an
+ * iterator needs O(1) memory and k items cost O(k) time. 12 rounds keep
+ * the positions of small queues statistically uniform.
+ * Each iterator draws fresh round keys, so iterators are independent, but
+ * the orders are pseudo-random rather than uniform over all permutations.
  ******************************************************************************/
 
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
 
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 public class RandomizedQueue<Item> implements Iterable<Item> {
 
     private int size;
+    private int modCount;
     private Item[] dataList;
 
     public RandomizedQueue() {
@@ -36,6 +50,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
         dataList[size++] = item;
         itemSwap(StdRandom.uniformInt(size), size - 1);
+        modCount++;
     }
 
     private void resizeRemove() {
@@ -56,6 +71,7 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
         Item item = dataList[--size];
         dataList[size] = null;
+        modCount++;
         if (size < dataList.length / 4) {
             resizeRemove();
         }
@@ -78,15 +94,75 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
     }
 
     public Iterator<Item> iterator() {
-        return new ItemIterator();
+        return new ItemIterator(dataList, size, true);
+    }
+
+    /**
+     * Iterator in random order over a copy of the items, unaffected by later
+     * enqueues and dequeues. The copy costs O(n) time and memory up front.
+     */
+    public Iterator<Item> snapshotIterator() {
+        return new ItemIterator(Arrays.copyOf(dataList, size), size, false);
     }
 
     private class ItemIterator implements Iterator<Item> {
+        private static final int ROUNDS = 12;
+
         private int current = 0;
-        private final int[] index = StdRandom.permutation(size);
+        private final Item[] items;
+        private final int count;
+        private final boolean failFast;
+        private final int halfBits;
+        private final int halfMask;
+        private final int[] keys = new int[ROUNDS];
+        private final int expectedModCount = modCount;
+
+        /**
+         * Iterator over items[0, count), checking modCount if failFast
+         */
+        ItemIterator(Item[] items, int count, boolean failFast) {
+            this.items = items;
+            this.count = count;
+            this.failFast = failFast;
+            int bits = count <= 1 ? 1 : 32 - Integer.numberOfLeadingZeros(count - 1);
+            halfBits = (bits + 1) / 2;
+            halfMask = (1 << halfBits) - 1;
+            for (int r = 0; r < ROUNDS; r++) {
+                keys[r] = StdRandom.uniformInt(Integer.MAX_VALUE);
+            }
+        }
+
+        /**
+         * One pass of the Feistel network over [0, 4^halfBits)
+         */
+        private long encrypt(long x) {
+            int left = (int) (x >>> halfBits);
+            int right = (int) (x & halfMask);
+            for (int r = 0; r < ROUNDS; r++) {
+                int mixed = (right + keys[r]) * 0x9E3779B9;
+                mixed ^= mixed >>> 15;
+                mixed *= 0x85EBCA6B;
+                mixed ^= mixed >>> 13;
+                int next = left ^ (mixed & halfMask);
+                left = right;
+                right = next;
+            }
+            return (long) left << halfBits | right;
+        }
+
+        /**
+         * The current-th index of the permutation, cycle walking back into [0, count)
+         */
+        private int index() {
+            long value = encrypt(current);
+            while (value >= count) {
+                value = encrypt(value);
+            }
+            return (int) value;
+        }
 
         public boolean hasNext() {
-            return current < size;
+            return current < count;
         }
 
         public void remove() {
@@ -94,10 +170,15 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
         }
 
         public Item next() {
+            if (failFast && modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
             if (!hasNext()) {
                 throw new NoSuchElementException();
             }
-            return dataList[index[current++]];
+            Item item = items[index()];
+            current++;
+            return item;
         }
     }
 
@@ -141,5 +222,51 @@ public class RandomizedQueue<Item> implements Iterable<Item> {
             StdOut.println(integer);
         }
         StdOut.println(a.sample() + a.size());
+
+        for (int n = 0; n <= 300; n++) {
+            RandomizedQueue<Integer> b = new RandomizedQueue<>();
+            for (int i = 0; i < n; i++) {
+                b.enqueue(i);
+            }
+            boolean[] seen = new boolean[n];
+            for (int item : b) {
+                assert !seen[item] : "iterator repeated " + item;
+                seen[item] = true;
+            }
+            for (boolean s : seen) {
+                assert s : "iterator missed an item";
+            }
+        }
+        // the 6 orders of 3 items should be about equally frequent
+        RandomizedQueue<Integer> c = new RandomizedQueue<>();
+        c.enqueue(0);
+        c.enqueue(1);
+        c.enqueue(2);
+        int[] orders = new int[9];
+        for (int t = 0; t < 60000; t++) {
+            Iterator<Integer> items = c.iterator();
+            orders[3 * items.next() + items.next()]++;
+        }
+        for (int i = 0; i < 9; i++) {
+            assert i / 3 == i % 3 || Math.abs(orders[i] - 10000) < 600
+                    : "order frequency " + orders[i] + " too far from 10000";
+        }
+
+        Iterator<Integer> stale = a.iterator();
+        Iterator<Integer> snapshot = a.snapshotIterator();
+        stale.next();
+        a.dequeue();
+        int snapshotted = 0;
+        while (snapshot.hasNext()) {
+            snapshot.next();
+            snapshotted++;
+        }
+        assert snapshotted == a.size() + 1 : "snapshot should hold the items before dequeue";
+        try {
+            stale.next();
+            assert false : "iterator should fail fast after dequeue";
+        } catch (ConcurrentModificationException e) {
+            StdOut.println("size: " + a.size());
+        }
     }
 }
@@ -0,0 +1,428 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Deque of fixed-width binary records in off-heap memory, a direct
+ * ByteBuffer or a memory-mapped file, so the backlog adds nothing for the
+ * GC to trace. The region is a 32 byte header (magic, version, record size,
+ * capacity, first, size) followed by capacity slots, used as a circle array
+ * like Deque: the capacity is a power of two and slot indices wrap with a
+ * bit mask. The capacity is fixed, adding to a full deque throws.
+ * reserve/remove/get hand out views of the slot itself, no record is copied.
+ * Adding is two steps: reserveFirst()/reserveLast() return the free slot,
+ * the caller writes the record into it, and commit() publishes it. Only
+ * commit() and the removes write first and size to the header, as one
+ * long, after the record bytes. So a file-backed ring reopened with open()
+ * after a process crash holds only whole, committed records, and continues
+ * where it stopped. A power loss can still reorder pages on the device
+ * unless force() ran after the commit. close() syncs the region and drops
+ * it; the GC unmaps it once no view handed out before is reachable either,
+ * so such views stay memory-safe.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class RecordRingDeque implements Iterable<ByteBuffer>, AutoCloseable {
+    private static final int MAGIC = 0x52524451;
+    private static final int VERSION = 1;
+    private static final int HEADER = 32;
+    private static final int RECORD_SIZE_AT = 8;
+    private static final int CAPACITY_AT = 12;
+    private static final int FIRST_AT = 16;
+    private static final int SIZE_AT = 20;
+    private static final int NONE = -1;
+
+    private ByteBuffer region;
+    private final int recordSize;
+    private final int mask;
+    private int first;
+    private int size;
+    // slot handed out by reserveFirst()/reserveLast() but not committed, or NONE
+    private int reserved = NONE;
+    private boolean reservedFirst;
+    private boolean closed;
+
+    /**
+     * Ring of capacity records of recordSize bytes in direct memory
+     *
+     * @throws IllegalArgumentException if recordSize <= 0, capacity is not a
+     *                                  power of two or the ring exceeds 2 GB
+     */
+    public RecordRingDeque(int recordSize, int capacity) {
+        this(ByteBuffer.allocateDirect(bytes(recordSize, capacity)), recordSize, capacity);
+        writeHeader();
+    }
+
+    private RecordRingDeque(ByteBuffer region, int recordSize, int capacity) {
+        this.region = region;
+        this.recordSize = recordSize;
+        mask = capacity - 1;
+        first = region.getInt(FIRST_AT);
+        size = region.getInt(SIZE_AT);
+    }
+
+    /**
+     * Open the ring stored in file, creating the file with an empty ring if it
+     * does not exist or is empty
+     *
+     * @throws IllegalArgumentException if recordSize or capacity is invalid, or
+     *                                  the file holds another ring
+     * @throws IOException              if the file cannot be mapped
+     */
+    public static RecordRingDeque open(Path file, int recordSize, int capacity)
+            throws IOException {
+        int bytes = bytes(recordSize, capacity);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                                                    StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE)) {
+            boolean fresh = channel.size() == 0;
+            if (!fresh && channel.size() != bytes) {
+                throw new IllegalArgumentException("Ring file size mismatch!");
+            }
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            if (fresh) {
+                RecordRingDeque ring = new RecordRingDeque(region, recordSize, capacity);
+                ring.writeHeader();
+                return ring;
+            }
+            if (region.getInt(0) != MAGIC || region.getInt(4) != VERSION
+                    || region.getInt(RECORD_SIZE_AT) != recordSize
+                    || region.getInt(CAPACITY_AT) != capacity) {
+                throw new IllegalArgumentException("Ring file does not match!");
+            }
+            int first = region.getInt(FIRST_AT);
+            int size = region.getInt(SIZE_AT);
+            if (first < 0 || first >= capacity || size < 0 || size > capacity) {
+                throw new IllegalArgumentException("Corrupt ring file!");
+            }
+            return new RecordRingDeque(region, recordSize, capacity);
+        }
+    }
+
+    private static int bytes(int recordSize, int capacity) {
+        if (recordSize <= 0 || capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Invalid recordSize or capacity!");
+        }
+        long bytes = HEADER + (long) recordSize * capacity;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Ring too large!");
+        }
+        return (int) bytes;
+    }
+
+    private void writeHeader() {
+        region.putInt(0, MAGIC);
+        region.putInt(4, VERSION);
+        region.putInt(RECORD_SIZE_AT, recordSize);
+        region.putInt(CAPACITY_AT, mask + 1);
+        writeEnds();
+    }
+
+    /**
+     * Publish first and size with a single 8 byte write, first in the high
+     * half, so a reader never sees one without the other
+     */
+    private void writeEnds() {
+        checkOpen();
+        region.putLong(FIRST_AT, (long) first << 32 | size);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Deque closed!");
+        }
+    }
+
+    private void checkCommitted() {
+        if (reserved != NONE) {
+            throw new IllegalStateException("Uncommitted record!");
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == mask + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public int recordSize() {
+        return recordSize;
+    }
+
+    /**
+     * View of a slot, position 0 and limit recordSize
+     */
+    private ByteBuffer slot(int index) {
+        checkOpen();
+        return region.slice(HEADER + index * recordSize, recordSize);
+    }
+
+    /**
+     * Reserve the slot in front of the first record, it joins the deque on commit()
+     *
+     * @return writable view of the slot, its old bytes are not cleared
+     * @throws IllegalStateException if the deque is full or a reservation is pending
+     */
+    public ByteBuffer reserveFirst() {
+        checkCommitted();
+        if (isFull()) {
+            throw new IllegalStateException("Deque full!");
+        }
+        reserved = (first - 1) & mask;
+        reservedFirst = true;
+        return slot(reserved);
+    }
+
+    /**
+     * Reserve the slot after the last record, it joins the deque on commit()
+     *
+     * @return writable view of the slot, its old bytes are not cleared
+     * @throws IllegalStateException if the deque is full or a reservation is pending
+     */
+    public ByteBuffer reserveLast() {
+        checkCommitted();
+        if (isFull()) {
+            throw new IllegalStateException("Deque full!");
+        }
+        reserved = (first + size) & mask;
+        reservedFirst = false;
+        return slot(reserved);
+    }
+
+    /**
+     * Add the reserved slot to the deque, once its record is written
+     *
+     * @throws IllegalStateException if nothing is reserved
+     */
+    public void commit() {
+        if (reserved == NONE) {
+            throw new IllegalStateException("Nothing reserved!");
+        }
+        if (reservedFirst) {
+            first = reserved;
+        }
+        size++;
+        reserved = NONE;
+        writeEnds();
+    }
+
+    /**
+     * Copy the remaining recordSize bytes of record to the front
+     *
+     * @throws IllegalArgumentException if record does not hold recordSize bytes
+     * @throws IllegalStateException    if the deque is full
+     */
+    public void addFirst(ByteBuffer record) {
+        if (record == null || record.remaining() != recordSize) {
+            throw new IllegalArgumentException("Invalid record!");
+        }
+        reserveFirst().put(record);
+        commit();
+    }
+
+    /**
+     * Copy the remaining recordSize bytes of record to the end
+     *
+     * @throws IllegalArgumentException if record does not hold recordSize bytes
+     * @throws IllegalStateException    if the deque is full
+     */
+    public void addLast(ByteBuffer record) {
+        if (record == null || record.remaining() != recordSize) {
+            throw new IllegalArgumentException("Invalid record!");
+        }
+        reserveLast().put(record);
+        commit();
+    }
+
+    /**
+     * Remove the first record
+     *
+     * @return read-only view of the removed record, valid until the next add
+     * @throws IllegalStateException if a reservation is pending
+     */
+    public ByteBuffer removeFirst() {
+        checkCommitted();
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        ByteBuffer removed = slot(first).asReadOnlyBuffer();
+        first = (first + 1) & mask;
+        size--;
+        writeEnds();
+        return removed;
+    }
+
+    /**
+     * Remove the last record
+     *
+     * @return read-only view of the removed record, valid until the next add
+     * @throws IllegalStateException if a reservation is pending
+     */
+    public ByteBuffer removeLast() {
+        checkCommitted();
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        size--;
+        writeEnds();
+        return slot((first + size) & mask).asReadOnlyBuffer();
+    }
+
+    /**
+     * View of the i-th record from the front, writable so records can be
+     * updated in place
+     *
+     * @throws IllegalArgumentException if i is not in [0, size())
+     */
+    public ByteBuffer get(int i) {
+        if (i < 0 || i >= size) {
+            throw new IllegalArgumentException("Invalid i!");
+        }
+        return slot((first + i) & mask);
+    }
+
+    /**
+     * Write the records and the header of a file-backed ring to the storage
+     * device, nothing to do for a direct ring
+     */
+    public void force() {
+        checkOpen();
+        if (region instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) region).force();
+        }
+    }
+
+    /**
+     * Sync a file-backed ring and drop the deque's reference to the region,
+     * the GC unmaps it (or frees the direct memory) once the views handed
+     * out before are unreachable too. An uncommitted reservation is dropped.
+     * The deque throws IllegalStateException afterwards; views handed out
+     * before remain valid memory but no longer belong to a ring.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        force();
+        reserved = NONE;
+        closed = true;
+        region = null;
+    }
+
+    /**
+     * Read-only views of the records, front to end
+     */
+    public Iterator<ByteBuffer> iterator() {
+        return new SlotIterator();
+    }
+
+    private class SlotIterator implements Iterator<ByteBuffer> {
+        int current = 0;
+
+        public boolean hasNext() {
+            return current < size;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        public ByteBuffer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return slot((first + current++) & mask).asReadOnlyBuffer();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // records of 12 bytes: a long and its low int negated
+        RecordRingDeque a = new RecordRingDeque(12, 1024);
+        ArrayDeque<Long> expected = new ArrayDeque<>();
+        for (long i = 0; i < 100000; i++) {
+            int op = StdRandom.uniformInt(4);
+            if (op == 0 && !a.isFull()) {
+                a.reserveFirst().putLong(i).putInt((int) -i);
+                a.commit();
+                expected.addFirst(i);
+            } else if (op == 1 && !a.isFull()) {
+                a.reserveLast().putLong(i).putInt((int) -i);
+                a.commit();
+                expected.addLast(i);
+            } else if (op == 2 && !a.isEmpty()) {
+                ByteBuffer record = a.removeFirst();
+                long item = expected.removeFirst();
+                assert record.getLong() == item && record.getInt() == (int) -item
+                        : "removeFirst mismatch";
+            } else if (op == 3 && !a.isEmpty()) {
+                ByteBuffer record = a.removeLast();
+                long item = expected.removeLast();
+                assert record.getLong() == item && record.getInt() == (int) -item
+                        : "removeLast mismatch";
+            }
+            assert a.size() == expected.size() : "size mismatch";
+        }
+        Iterator<ByteBuffer> records = a.iterator();
+        for (long item : expected) {
+            assert records.next().getLong() == item : "iterator mismatch";
+        }
+        assert !records.hasNext() : "iterator too long";
+
+        Path file = Files.createTempFile("ring", ".bin");
+        Files.delete(file);
+        RecordRingDeque ring = RecordRingDeque.open(file, 8, 16);
+        for (long i = 0; i < 20; i++) {
+            if (ring.isFull()) ring.removeFirst();
+            ring.addLast(ByteBuffer.allocate(8).putLong(0, i));
+        }
+        ByteBuffer kept = ring.get(0);
+        kept.putLong(0, -4);
+        ring.removeLast();
+        // reserved but never committed, as if the writer crashed mid-record
+        ring.reserveFirst().putInt(0, 99);
+        ring.close();
+        assert kept.getLong(0) == -4 : "a view should stay readable after close()";
+        RecordRingDeque reopened = RecordRingDeque.open(file, 8, 16);
+        assert reopened.size() == 15 && reopened.removeFirst().getLong() == -4
+                : "reopened ring should hold only the committed records";
+        for (long i = 5; i < 19; i++) {
+            assert reopened.removeFirst().getLong() == i : "reopened record mismatch";
+        }
+        try {
+            ring.size();
+            ring.removeFirst();
+            assert false : "closed ring should throw";
+        } catch (IllegalStateException e) {
+            reopened.close();
+        }
+        try {
+            RecordRingDeque.open(file, 16, 16);
+            assert false : "another record size should be rejected";
+        } catch (IllegalArgumentException e) {
+            StdOut.println("isEmpty:" + reopened.isEmpty() + " size: " + reopened.size());
+        }
+        Files.delete(file);
+    }
+}
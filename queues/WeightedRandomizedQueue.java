@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Randomized queue whose sample() and dequeue() pick an item with
+ * probability proportional to its weight. The weights are kept in a Fenwick
+ * tree (binary indexed tree) over the item array, so an item is picked by
+ * descending the tree with a uniform point in [0, totalWeight()) in
+ * O(log n). dequeue() moves the last item into the hole, as
+ * RandomizedQueue, and updates the two slots in O(log n). The array doubles
+ * and halves like RandomizedQueue, and every resize rebuilds the tree in
+ * O(n). The tree is also rebuilt after every capacity updates, so rounding
+ * left by removed weights cannot pile up.
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+public class WeightedRandomizedQueue<Item> {
+    private Item[] dataList;
+    private double[] weights;
+    // tree[i] = sum of weights[i - lowbit(i), i), 1-based
+    private double[] tree;
+    private int size;
+    private int updates;
+
+    public WeightedRandomizedQueue() {
+        dataList = (Item[]) new Object[1];
+        weights = new double[1];
+        tree = new double[2];
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sum of the weights of all items
+     *
+     * @return total weight, 0 if empty
+     */
+    public double totalWeight() {
+        double sum = 0;
+        for (int i = size; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Move the items to arrays of the given capacity and rebuild the tree
+     */
+    private void resize(int capacity) {
+        Item[] tmp = (Item[]) new Object[capacity];
+        System.arraycopy(dataList, 0, tmp, 0, size);
+        dataList = tmp;
+        double[] tmpWeights = new double[capacity];
+        System.arraycopy(weights, 0, tmpWeights, 0, size);
+        weights = tmpWeights;
+        tree = new double[capacity + 1];
+        rebuild();
+    }
+
+    /**
+     * Build the tree over the whole capacity in O(n), the free slots weigh 0,
+     * each node passes its sum to its parent
+     */
+    private void rebuild() {
+        Arrays.fill(tree, 0);
+        for (int i = 1; i < tree.length; i++) {
+            tree[i] += weights[i - 1];
+            int parent = i + (i & -i);
+            if (parent < tree.length) {
+                tree[parent] += tree[i];
+            }
+        }
+        updates = 0;
+    }
+
+    /**
+     * Add delta to the weight of slot index
+     */
+    private void add(int index, double delta) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private void updated() {
+        if (++updates >= dataList.length) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Add an item that is picked with probability weight / totalWeight()
+     *
+     * @throws IllegalArgumentException if item is null or weight is not
+     *                                  positive and finite
+     */
+    public void enqueue(Item item, double weight) {
+        if (item == null) {
+            throw new IllegalArgumentException("Null item!");
+        }
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Invalid weight!");
+        }
+        if (size == dataList.length) {
+            resize(2 * dataList.length);
+        }
+        dataList[size] = item;
+        weights[size] = weight;
+        add(size++, weight);
+        updated();
+    }
+
+    /**
+     * Slot of a random item, picked in proportion to the weights by
+     * descending the tree
+     */
+    private int pick() {
+        double target = StdRandom.uniformDouble() * totalWeight();
+        int index = 0;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>>= 1) {
+            int next = index + step;
+            if (next <= size && tree[next] <= target) {
+                index = next;
+                target -= tree[next];
+            }
+        }
+        // rounding may push target past the last prefix sum
+        return Math.min(index, size - 1);
+    }
+
+    /**
+     * Remove a random item, picked in proportion to the weights
+     *
+     * @return the item
+     */
+    public Item dequeue() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        int index = pick();
+        Item item = dataList[index];
+        int last = --size;
+        add(index, weights[last] - weights[index]);
+        add(last, -weights[last]);
+        dataList[index] = dataList[last];
+        weights[index] = weights[last];
+        dataList[last] = null;
+        weights[last] = 0;
+        if (size > 0 && size < dataList.length / 4) {
+            resize(dataList.length / 2);
+        } else {
+            updated();
+        }
+        return item;
+    }
+
+    /**
+     * Return a random item, picked in proportion to the weights, without removing it
+     *
+     * @return the item
+     */
+    public Item sample() {
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return dataList[pick()];
+    }
+
+    public static void main(String[] args) {
+        WeightedRandomizedQueue<Integer> a = new WeightedRandomizedQueue<>();
+        for (int i = 1; i <= 4; i++) {
+            a.enqueue(i, i);
+        }
+        assert a.totalWeight() == 10 : "total weight should be 1 + 2 + 3 + 4";
+        int[] counts = new int[5];
+        for (int t = 0; t < 100000; t++) {
+            counts[a.sample()]++;
+        }
+        for (int i = 1; i <= 4; i++) {
+            assert Math.abs(counts[i] - 10000 * i) < 1000 : "item " + i + " sampled " + counts[i];
+        }
+
+        // weight 99 against 1: the heavy item should mostly leave first
+        int heavyFirst = 0;
+        for (int t = 0; t < 10000; t++) {
+            WeightedRandomizedQueue<String> b = new WeightedRandomizedQueue<>();
+            b.enqueue("light", 1);
+            b.enqueue("heavy", 99);
+            if (b.dequeue().equals("heavy")) heavyFirst++;
+            assert b.size() == 1 && (b.totalWeight() == 1 || b.totalWeight() == 99)
+                    : "one item should be left";
+        }
+        assert Math.abs(heavyFirst - 9900) < 100 : "heavy item left first " + heavyFirst + " times";
+
+        WeightedRandomizedQueue<Integer> c = new WeightedRandomizedQueue<>();
+        boolean[] seen = new boolean[100000];
+        for (int i = 0; i < seen.length; i++) {
+            c.enqueue(i, StdRandom.uniformDouble(0.1, 10));
+            if (i % 3 == 2) {
+                int item = c.dequeue();
+                assert !seen[item] : "item " + item + " dequeued twice";
+                seen[item] = true;
+            }
+        }
+        while (!c.isEmpty()) {
+            int item = c.dequeue();
+            assert !seen[item] : "item " + item + " dequeued twice";
+            seen[item] = true;
+        }
+        for (boolean s : seen) {
+            assert s : "an item was never dequeued";
+        }
+        assert c.totalWeight() == 0 : "empty queue should weigh 0";
+        try {
+            c.sample();
+            assert false : "sample on empty should throw";
+        } catch (NoSuchElementException e) {
+            StdOut.println("isEmpty:" + c.isEmpty() + " size: " + c.size());
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2023. VitaminL
+ * All rights reserved.
+ * <p>
+ * Cost per operation of WeightedRandomizedQueue at growing sizes, no JMH so
+ * the harness is a Stopwatch. For every n the queue is filled with n items
+ * of random weights, then sampled and dequeued a million times. As a
+ * baseline, sampling by a linear prefix-sum scan over the same weights is
+ * timed for a few samples. A queue slot costs 20 bytes of arrays (item
+ * reference, weight and tree node) and the capacity is the next power of
+ * two, and while it doubles the old and new arrays coexist: 100M items
+ * peak at 1.3 GB + 2.7 GB from 67M to 134M slots, plus 0.8 GB for the
+ * benchmark's own weights, so give that run -Xmx6g.
+ * Usage: WeightedRandomizedQueueBenchmark [n...]
+ ******************************************************************************/
+
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+public class WeightedRandomizedQueueBenchmark {
+    private static final int OPERATIONS = 1000000;
+    private static final int SCANS = 20;
+    private static final Integer ITEM = 1;
+
+    /**
+     * Pick a slot in proportion to weights[0, n) with a linear scan
+     */
+    private static int scan(double[] weights, int n) {
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            total += weights[i];
+        }
+        double target = StdRandom.uniformDouble() * total;
+        for (int i = 0; i < n; i++) {
+            target -= weights[i];
+            if (target < 0) {
+                return i;
+            }
+        }
+        return n - 1;
+    }
+
+    private static double nanosPerOp(Stopwatch stopwatch, long ops) {
+        return stopwatch.elapsedTime() * 1e9 / ops;
+    }
+
+    private static void run(int n, boolean print) {
+        double[] weights = new double[n];
+        for (int i = 0; i < n; i++) {
+            weights[i] = StdRandom.uniformDouble(0.5, 2.0);
+        }
+        WeightedRandomizedQueue<Integer> queue = new WeightedRandomizedQueue<>();
+        Stopwatch stopwatch = new Stopwatch();
+        for (int i = 0; i < n; i++) {
+            queue.enqueue(ITEM, weights[i]);
+        }
+        double enqueue = nanosPerOp(stopwatch, n);
+        int ops = Math.min(OPERATIONS, n);
+        stopwatch = new Stopwatch();
+        int check = 0;
+        for (int i = 0; i < ops; i++) {
+            check += queue.sample();
+        }
+        double sample = nanosPerOp(stopwatch, ops);
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < ops; i++) {
+            check -= queue.dequeue();
+        }
+        double dequeue = nanosPerOp(stopwatch, ops);
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < SCANS; i++) {
+            check += scan(weights, n) >= 0 ? 0 : 1;
+        }
+        double scan = nanosPerOp(stopwatch, SCANS);
+        if (check != 0) {
+            throw new IllegalStateException("Queue returned a foreign item!");
+        }
+        if (print) {
+            StdOut.printf("%11d %12.1f %12.1f %12.1f %14.1f%n", n, enqueue, sample, dequeue, scan);
+        }
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = {1000000, 10000000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            run(100000, false);
+        }
+        StdOut.printf("%11s %12s %12s %12s %14s  (ns/op)%n", "n", "enqueue", "sample",
+                      "dequeue", "scan sample");
+        for (int n : sizes) {
+            run(n, true);
+        }
+    }
+}